@@ -0,0 +1,43 @@
+package com.dmdev.benchmark;
+
+import com.dmdev.dao.SchemaMigrator;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.util.ConnectionManager;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+@UtilityClass
+public class BenchmarkDatabase {
+    private static final String CLEAN_SQL = "DELETE FROM subscription_event; DELETE FROM subscription;";
+
+    @SneakyThrows
+    public static void prepare() {
+        try (var connection = ConnectionManager.get();
+             var statement = connection.createStatement()) {
+            SchemaMigrator.getInstance().migrate(connection);
+            statement.execute(CLEAN_SQL);
+        }
+    }
+
+    public static List<Subscription> subscriptions(int count) {
+        var expirationDate = Instant.now().plus(365, ChronoUnit.DAYS);
+        List<Subscription> subscriptions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            subscriptions.add(Subscription.builder()
+                    .userId(i)
+                    .name("subscription-" + i)
+                    .provider(i % 2 == 0 ? Provider.APPLE : Provider.GOOGLE)
+                    .expirationDate(expirationDate)
+                    .status(Status.ACTIVE)
+                    .build());
+        }
+        return subscriptions;
+    }
+}
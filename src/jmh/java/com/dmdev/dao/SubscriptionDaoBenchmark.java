@@ -0,0 +1,67 @@
+package com.dmdev.dao;
+
+import com.dmdev.benchmark.BenchmarkDatabase;
+import com.dmdev.entity.Subscription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionDaoBenchmark {
+    private final SubscriptionDao subscriptionDao = SubscriptionDao.getInstance();
+
+    @Param("1000")
+    private int rows;
+
+    private List<Subscription> subscriptions;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase.prepare();
+        subscriptions = subscriptionDao.insertAll(BenchmarkDatabase.subscriptions(rows));
+    }
+
+    @Benchmark
+    public Optional<Subscription> findById() {
+        return subscriptionDao.findById(randomSubscription().getId());
+    }
+
+    @Benchmark
+    public List<Subscription> findByUserId() {
+        return subscriptionDao.findByUserId(randomSubscription().getUserId());
+    }
+
+    @Benchmark
+    public Subscription update() {
+        return subscriptionDao.update(randomSubscription());
+    }
+
+    @Benchmark
+    public boolean insertAndDelete() {
+        var subscription = subscriptionDao.insert(BenchmarkDatabase.subscriptions(1).get(0).setUserId(-1));
+        return subscriptionDao.delete(subscription.getId());
+    }
+
+    private Subscription randomSubscription() {
+        return subscriptions.get(ThreadLocalRandom.current().nextInt(subscriptions.size()));
+    }
+}
@@ -0,0 +1,114 @@
+package com.dmdev.dao;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+/**
+ * Sweep and user lookup queries on a 1M row table, before (schema version 2) and after (version 3) the hot path indexes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubscriptionIndexBenchmark {
+    private static final String INSERT_ROWS_SQL = """
+            INSERT INTO subscription (user_id, name, provider, expiration_date, status)
+            SELECT X / 4,
+                   'subscription-' || X,
+                   CASE WHEN MOD(X, 2) = 0 THEN 'APPLE' ELSE 'GOOGLE' END,
+                   CASE WHEN MOD(X, 100) = 0 THEN ? ELSE ? END,
+                   CASE WHEN MOD(X, 20) = 1 THEN 'CANCELED' WHEN MOD(X, 20) = 2 THEN 'EXPIRED' ELSE 'ACTIVE' END
+            FROM SYSTEM_RANGE(1, ?)
+            """;
+    private static final String SWEEP_SQL = """
+            SELECT id
+            FROM subscription
+            WHERE status = 'ACTIVE' AND expiration_date < ?
+            ORDER BY id
+            LIMIT 1000
+            """;
+    private static final String FIND_BY_USER_ID_SQL = """
+            SELECT id, user_id, name, provider, expiration_date, status, version
+            FROM subscription
+            WHERE user_id = ?
+            """;
+    private static final Instant DUE = Instant.parse("2020-01-01T00:00:00Z");
+    private static final Instant NOT_DUE = Instant.parse("2040-01-01T00:00:00Z");
+    private static final Instant SWEEP_CUT_OFF = Instant.parse("2030-01-01T00:00:00Z");
+
+    @Param({"2", "3"})
+    private int schemaVersion;
+
+    @Param("1000000")
+    private int rows;
+
+    private Connection connection;
+    private PreparedStatement sweep;
+    private PreparedStatement findByUserId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:index_benchmark_" + schemaVersion, "sa", "");
+        SchemaMigrator.getInstance().migrate(connection, schemaVersion);
+        try (var insert = connection.prepareStatement(INSERT_ROWS_SQL)) {
+            insert.setTimestamp(1, Timestamp.from(DUE));
+            insert.setTimestamp(2, Timestamp.from(NOT_DUE));
+            insert.setInt(3, rows);
+            insert.executeUpdate();
+        }
+        try (var statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+        sweep = connection.prepareStatement(SWEEP_SQL);
+        findByUserId = connection.prepareStatement(FIND_BY_USER_ID_SQL);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public void expirationSweep(Blackhole blackhole) throws SQLException {
+        sweep.setTimestamp(1, Timestamp.from(SWEEP_CUT_OFF.plusMillis(ThreadLocalRandom.current().nextInt(1_000_000))));
+        try (var resultSet = sweep.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getInt(1));
+            }
+        }
+    }
+
+    @Benchmark
+    public void findByUserId(Blackhole blackhole) throws SQLException {
+        findByUserId.setInt(1, ThreadLocalRandom.current().nextInt(rows / 4));
+        try (var resultSet = findByUserId.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getInt(1));
+            }
+        }
+    }
+}
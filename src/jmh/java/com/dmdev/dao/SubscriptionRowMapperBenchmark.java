@@ -0,0 +1,86 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionRowMapperBenchmark {
+    private static final int ROWS = 1000;
+
+    private SimpleResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("user_id", Types.INTEGER, 10, 0);
+        resultSet.addColumn("name", Types.VARCHAR, 64, 0);
+        resultSet.addColumn("provider", Types.VARCHAR, 16, 0);
+        resultSet.addColumn("expiration_date", Types.TIMESTAMP, 26, 6);
+        resultSet.addColumn("status", Types.VARCHAR, 16, 0);
+        resultSet.addColumn("version", Types.INTEGER, 10, 0);
+        var expirationDate = Timestamp.from(Instant.parse("2030-10-10T10:15:30.345Z"));
+        for (int i = 0; i < ROWS; i++) {
+            resultSet.addRow(i, i, "subscription-" + i, Provider.values()[i % 2].name(), expirationDate, Status.ACTIVE.name(), 0);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void builderByColumnName(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        while (resultSet.next()) {
+            blackhole.consume(buildEntityByColumnName(resultSet));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void rowMapper(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        var rowMapper = SubscriptionRowMapper.of(resultSet);
+        while (resultSet.next()) {
+            blackhole.consume(rowMapper.map());
+        }
+    }
+
+    private static Subscription buildEntityByColumnName(ResultSet resultSet) throws SQLException {
+        return Subscription.builder()
+                .id(resultSet.getObject("id", Integer.class))
+                .userId(resultSet.getObject("user_id", Integer.class))
+                .name(resultSet.getObject("name", String.class))
+                .provider(Provider.valueOf(resultSet.getObject("provider", String.class)))
+                .expirationDate(resultSet.getObject("expiration_date", Timestamp.class).toInstant())
+                .status(Status.valueOf(resultSet.getObject("status", String.class)))
+                .version(resultSet.getObject("version", Integer.class))
+                .build();
+    }
+}
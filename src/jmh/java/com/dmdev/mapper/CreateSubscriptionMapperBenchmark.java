@@ -0,0 +1,39 @@
+package com.dmdev.mapper;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Subscription;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateSubscriptionMapperBenchmark {
+    private final CreateSubscriptionMapper createSubscriptionMapper = CreateSubscriptionMapper.getInstance();
+    private final CreateSubscriptionDto dto = CreateSubscriptionDto.builder()
+            .userId(1)
+            .name("Jane")
+            .provider(Provider.GOOGLE.name())
+            .expirationDate(Instant.parse("2030-10-10T10:15:30.345Z"))
+            .build();
+
+    @Benchmark
+    public Subscription map() {
+        return createSubscriptionMapper.map(dto);
+    }
+}
@@ -0,0 +1,62 @@
+package com.dmdev.service;
+
+import com.dmdev.benchmark.BenchmarkDatabase;
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Subscription;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubscriptionServiceBenchmark {
+    @Param("1000")
+    private int users;
+
+    private SubscriptionService subscriptionService;
+    private List<CreateSubscriptionDto> dtos;
+
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase.prepare();
+        subscriptionService = new SubscriptionService(
+                SubscriptionDao.getInstance(),
+                CreateSubscriptionMapper.getInstance(),
+                CreateSubscriptionValidator.getInstance(),
+                Clock.systemUTC());
+        dtos = BenchmarkDatabase.subscriptions(users).stream()
+                .map(subscription -> CreateSubscriptionDto.builder()
+                        .userId(subscription.getUserId())
+                        .name(subscription.getName())
+                        .provider(subscription.getProvider().name())
+                        .expirationDate(subscription.getExpirationDate())
+                        .build())
+                .toList();
+    }
+
+    @Benchmark
+    public Subscription upsert() {
+        return subscriptionService.upsert(dtos.get(ThreadLocalRandom.current().nextInt(dtos.size())));
+    }
+}
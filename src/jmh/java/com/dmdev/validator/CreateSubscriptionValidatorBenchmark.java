@@ -0,0 +1,78 @@
+package com.dmdev.validator;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Provider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateSubscriptionValidatorBenchmark {
+    private static final int BATCH_SIZE = 100_000;
+
+    private final CreateSubscriptionValidator createSubscriptionValidator = CreateSubscriptionValidator.getInstance();
+    private final CreateSubscriptionDto validDto = CreateSubscriptionDto.builder()
+            .userId(1)
+            .name("Jane")
+            .provider(Provider.GOOGLE.name())
+            .expirationDate(Instant.parse("2030-10-10T10:15:30.345Z"))
+            .build();
+    private final CreateSubscriptionDto invalidDto = CreateSubscriptionDto.builder()
+            .name(" ")
+            .provider("amazon")
+            .build();
+
+    @Benchmark
+    public ValidationResult validateValid() {
+        return createSubscriptionValidator.validate(validDto);
+    }
+
+    private List<CreateSubscriptionDto> batch;
+
+    @Setup
+    public void setUp() {
+        batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(i % 100 == 0 ? invalidDto : validDto);
+        }
+    }
+
+    @Benchmark
+    public ValidationResult validateInvalid() {
+        return createSubscriptionValidator.validate(invalidDto);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void validateOneByOne(Blackhole blackhole) {
+        for (var dto : batch) {
+            blackhole.consume(createSubscriptionValidator.validate(dto));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public BatchValidationResult validateAll() {
+        return createSubscriptionValidator.validateAll(batch);
+    }
+}
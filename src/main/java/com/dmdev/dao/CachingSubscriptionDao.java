@@ -0,0 +1,295 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.util.LruCache;
+import com.dmdev.util.PropertiesUtil;
+import com.dmdev.util.TransactionManager;
+import com.dmdev.util.TransactionRunner;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toCollection;
+
+/**
+ * Caches lookups by id and by user id for the TTL. Reads inside a transaction go straight to the delegate, so they
+ * see the transaction's own writes and never cache a state that may still be rolled back.
+ */
+public class CachingSubscriptionDao implements SubscriptionRepository {
+    private static final String MAX_SIZE_KEY = "cache.subscription.max-size";
+    private static final String TTL_KEY = "cache.subscription.ttl-ms";
+
+    private final SubscriptionRepository delegate;
+    private final LruCache<Integer, Subscription> byId;
+    private final LruCache<Integer, List<Subscription>> byUserId;
+
+    public CachingSubscriptionDao(SubscriptionRepository delegate, int maxSize, Duration ttl, Clock clock) {
+        this.delegate = delegate;
+        this.byId = new LruCache<>(maxSize, ttl, clock);
+        this.byUserId = new LruCache<>(maxSize, ttl, clock);
+    }
+
+    public static CachingSubscriptionDao fromProperties(SubscriptionRepository delegate, Clock clock) {
+        return new CachingSubscriptionDao(
+                delegate,
+                PropertiesUtil.getInt(MAX_SIZE_KEY, 10_000),
+                Duration.ofMillis(PropertiesUtil.getLong(TTL_KEY, 60_000)),
+                clock);
+    }
+
+    @Override
+    public TransactionRunner getTransactionRunner() {
+        return delegate.getTransactionRunner();
+    }
+
+    @Override
+    public Optional<Subscription> findById(Integer id) {
+        if (TransactionManager.isActive()) {
+            return delegate.findById(id);
+        }
+        var cached = byId.get(id);
+        if (cached != null) {
+            return Optional.of(copy(cached));
+        }
+        var subscription = delegate.findById(id);
+        subscription.ifPresent(found -> byId.put(id, copy(found)));
+        return subscription;
+    }
+
+    @Override
+    public List<Subscription> findByUserId(Integer userId) {
+        if (TransactionManager.isActive()) {
+            return delegate.findByUserId(userId);
+        }
+        var cached = byUserId.get(userId);
+        if (cached != null) {
+            return copyAll(cached);
+        }
+        var subscriptions = delegate.findByUserId(userId);
+        byUserId.put(userId, copyAll(subscriptions));
+        return subscriptions;
+    }
+
+    @Override
+    public List<Subscription> findActiveExpiringBefore(Instant expiringBefore) {
+        return delegate.findActiveExpiringBefore(expiringBefore);
+    }
+
+    @Override
+    public Map<Integer, List<Subscription>> findByUserIds(Collection<Integer> userIds) {
+        if (TransactionManager.isActive()) {
+            return delegate.findByUserIds(userIds);
+        }
+        Map<Integer, List<Subscription>> subscriptionsByUserId = new LinkedHashMap<>();
+        List<Integer> missed = new ArrayList<>();
+        for (var userId : userIds) {
+            if (subscriptionsByUserId.containsKey(userId)) {
+                continue;
+            }
+            var cached = byUserId.get(userId);
+            subscriptionsByUserId.put(userId, cached != null ? copyAll(cached) : null);
+            if (cached == null) {
+                missed.add(userId);
+            }
+        }
+        if (!missed.isEmpty()) {
+            delegate.findByUserIds(missed).forEach((userId, subscriptions) -> {
+                byUserId.put(userId, copyAll(subscriptions));
+                subscriptionsByUserId.put(userId, subscriptions);
+            });
+        }
+        return subscriptionsByUserId;
+    }
+
+    @Override
+    public List<Subscription> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Subscription> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Subscription> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public Page<Integer, Subscription> findPage(Integer afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Page<Integer, Subscription> findByUserIdPage(Integer userId, Integer afterId, int limit) {
+        return delegate.findByUserIdPage(userId, afterId, limit);
+    }
+
+    @Override
+    public boolean delete(Integer id) {
+        try {
+            return delegate.delete(id);
+        } finally {
+            invalidateById(id);
+        }
+    }
+
+    @Override
+    public boolean transitionStatus(Integer id, Set<Status> expectedStatuses, Status newStatus, Instant newExpirationDate) {
+        try {
+            return delegate.transitionStatus(id, expectedStatuses, newStatus, newExpirationDate);
+        } finally {
+            invalidateById(id);
+        }
+    }
+
+    @Override
+    public boolean expireIfDue(Integer id, Instant dueAt, Instant expiredAt) {
+        try {
+            return delegate.expireIfDue(id, dueAt, expiredAt);
+        } finally {
+            invalidateById(id);
+        }
+    }
+
+    @Override
+    public Subscription update(Subscription entity) {
+        try {
+            return delegate.update(entity);
+        } finally {
+            invalidate(entity);
+        }
+    }
+
+    @Override
+    public Subscription insert(Subscription entity) {
+        try {
+            return delegate.insert(entity);
+        } finally {
+            invalidate(entity);
+        }
+    }
+
+    @Override
+    public Subscription upsertByUserIdAndName(Subscription entity) {
+        try {
+            return delegate.upsertByUserIdAndName(entity);
+        } finally {
+            invalidate(entity);
+        }
+    }
+
+    @Override
+    public List<Subscription> insertAll(Collection<Subscription> entities) {
+        try {
+            return delegate.insertAll(entities);
+        } finally {
+            entities.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public List<Subscription> updateAll(Collection<Subscription> entities) {
+        try {
+            return delegate.updateAll(entities);
+        } finally {
+            entities.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public List<Subscription> upsertAll(Collection<Subscription> entities) {
+        try {
+            return delegate.upsertAll(entities);
+        } finally {
+            entities.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public boolean isUpsertAtomic() {
+        return delegate.isUpsertAtomic();
+    }
+
+    @Override
+    public List<Subscription> upsertAllByUserIdAndName(Collection<Subscription> entities) {
+        try {
+            return delegate.upsertAllByUserIdAndName(entities);
+        } finally {
+            entities.forEach(this::invalidate);
+        }
+    }
+
+    @Override
+    public List<Integer> expireDueBefore(Instant dueBefore, Instant expiredAt, int limit) {
+        try {
+            return delegate.expireDueBefore(dueBefore, expiredAt, limit);
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    public long getHitCount() {
+        return byId.getHitCount() + byUserId.getHitCount();
+    }
+
+    public long getMissCount() {
+        return byId.getMissCount() + byUserId.getMissCount();
+    }
+
+    public void invalidateAll() {
+        byId.invalidateAll();
+        byUserId.invalidateAll();
+    }
+
+    private void invalidateById(Integer id) {
+        if (id == null) {
+            return;
+        }
+        var cached = byId.invalidate(id);
+        if (cached != null) {
+            byUserId.invalidate(cached.getUserId());
+        } else {
+            byUserId.invalidateAll();
+        }
+    }
+
+    private void invalidate(Subscription entity) {
+        if (entity.getId() != null) {
+            var cached = byId.invalidate(entity.getId());
+            if (cached != null) {
+                byUserId.invalidate(cached.getUserId());
+            }
+        }
+        byUserId.invalidate(entity.getUserId());
+    }
+
+    private static List<Subscription> copyAll(List<Subscription> subscriptions) {
+        return subscriptions.stream()
+                .map(CachingSubscriptionDao::copy)
+                .collect(toCollection(ArrayList::new));
+    }
+
+    private static Subscription copy(Subscription subscription) {
+        return new Subscription(
+                subscription.getId(),
+                subscription.getUserId(),
+                subscription.getName(),
+                subscription.getProvider(),
+                subscription.getExpirationDate(),
+                subscription.getStatus(),
+                subscription.getVersion());
+    }
+}
@@ -2,9 +2,13 @@ package com.dmdev.dao;
 
 import com.dmdev.entity.BaseEntity;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import static java.util.stream.Collectors.partitioningBy;
+
 public interface Dao<K, T extends BaseEntity<K>> {
     default T upsert(T entity) {
         return entity.getId() != null
@@ -12,6 +16,14 @@ public interface Dao<K, T extends BaseEntity<K>> {
                 : insert(entity);
     }
 
+    default List<T> upsertAll(Collection<T> entities) {
+        var partitioned = entities.stream()
+                .collect(partitioningBy(entity -> entity.getId() != null));
+        updateAll(partitioned.get(true));
+        insertAll(partitioned.get(false));
+        return new ArrayList<>(entities);
+    }
+
     List<T> findAll();
 
     Optional<T> findById(K id);
@@ -21,4 +33,8 @@ public interface Dao<K, T extends BaseEntity<K>> {
     T update(T entity);
 
     T insert(T entity);
+
+    List<T> updateAll(Collection<T> entities);
+
+    List<T> insertAll(Collection<T> entities);
 }
@@ -0,0 +1,20 @@
+package com.dmdev.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+public enum Dialect {
+    POSTGRES, H2;
+
+    public static Dialect of(Connection connection) throws SQLException {
+        var productName = connection.getMetaData().getDatabaseProductName();
+        if ("PostgreSQL".equalsIgnoreCase(productName)) {
+            return POSTGRES;
+        }
+        if ("H2".equalsIgnoreCase(productName)) {
+            return H2;
+        }
+        throw new SQLFeatureNotSupportedException("Unsupported database: " + productName);
+    }
+}
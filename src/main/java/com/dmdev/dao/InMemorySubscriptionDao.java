@@ -0,0 +1,496 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.exception.OptimisticLockException;
+import com.dmdev.util.StripedLock;
+import com.dmdev.util.TransactionRunner;
+import lombok.SneakyThrows;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toCollection;
+
+/**
+ * Keeps subscriptions in memory with the same (user_id, name) uniqueness, optimistic versions and upsert rules as
+ * the JDBC implementation. Reads are lock-free; writes lock the stripes of the affected user ids, so writes of
+ * different users run in parallel. There are no transactions: {@link #getTransactionRunner()} runs work directly,
+ * so a {@link com.dmdev.service.SubscriptionService} built on this DAO never opens the connection pool.
+ */
+public class InMemorySubscriptionDao implements SubscriptionRepository {
+    private static final int DEFAULT_STRIPES = 64;
+    private static final Comparator<ExpirationKey> EXPIRATION_ORDER = Comparator
+            .comparing(ExpirationKey::status)
+            .thenComparing(ExpirationKey::expirationDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(ExpirationKey::id);
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final ConcurrentSkipListMap<Integer, Subscription> byId = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Integer, NavigableSet<Integer>> idsByUserId = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<NameKey, Integer> idByUserIdAndName = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<ExpirationKey> byStatusAndExpirationDate = new ConcurrentSkipListSet<>(EXPIRATION_ORDER);
+    private final StripedLock stripes;
+
+    public InMemorySubscriptionDao() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public InMemorySubscriptionDao(int stripeCount) {
+        this.stripes = new StripedLock(stripeCount);
+    }
+
+    @Override
+    public TransactionRunner getTransactionRunner() {
+        return TransactionRunner.NONE;
+    }
+
+    @Override
+    public List<Subscription> findAll() {
+        return copyAll(byId.values());
+    }
+
+    @Override
+    public Stream<Subscription> streamAll() {
+        return byId.values().stream().map(InMemorySubscriptionDao::copy);
+    }
+
+    @Override
+    public void forEach(Consumer<? super Subscription> action) {
+        byId.values().forEach(subscription -> action.accept(copy(subscription)));
+    }
+
+    @Override
+    public Optional<Subscription> findById(Integer id) {
+        return Optional.ofNullable(byId.get(id)).map(InMemorySubscriptionDao::copy);
+    }
+
+    @Override
+    public List<Subscription> findByUserId(Integer userId) {
+        return copyAll(getByUserId(userId));
+    }
+
+    @Override
+    public List<Subscription> findActiveExpiringBefore(Instant expiringBefore) {
+        return copyAll(byStatusAndExpirationDate.subSet(
+                        new ExpirationKey(Status.ACTIVE, Instant.MIN, Integer.MIN_VALUE), true,
+                        new ExpirationKey(Status.ACTIVE, expiringBefore, Integer.MIN_VALUE), true).stream()
+                .map(key -> byId.get(key.id()))
+                .filter(Objects::nonNull)
+                .toList());
+    }
+
+    @Override
+    public Map<Integer, List<Subscription>> findByUserIds(Collection<Integer> userIds) {
+        Map<Integer, List<Subscription>> subscriptionsByUserId = new LinkedHashMap<>();
+        for (var userId : userIds) {
+            subscriptionsByUserId.computeIfAbsent(userId, this::findByUserId);
+        }
+        return subscriptionsByUserId;
+    }
+
+    @Override
+    public Page<Integer, Subscription> findPage(Integer afterId, int limit) {
+        checkLimit(limit);
+        var candidates = afterId == null ? byId.values() : byId.tailMap(afterId, false).values();
+        return buildPage(candidates, limit);
+    }
+
+    @Override
+    public Page<Integer, Subscription> findByUserIdPage(Integer userId, Integer afterId, int limit) {
+        checkLimit(limit);
+        var candidates = getByUserId(userId).stream()
+                .filter(subscription -> afterId == null || subscription.getId() > afterId)
+                .toList();
+        return buildPage(candidates, limit);
+    }
+
+    @Override
+    public boolean delete(Integer id) {
+        return withStripes(() -> storedUserIdsOf(id), () -> {
+            var current = byId.remove(id);
+            if (current == null) {
+                return false;
+            }
+            unindex(current);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean transitionStatus(Integer id, Set<Status> expectedStatuses, Status newStatus, Instant newExpirationDate) {
+        if (expectedStatuses.isEmpty()) {
+            return false;
+        }
+        return withStripes(() -> storedUserIdsOf(id), () -> {
+            var current = byId.get(id);
+            if (current == null || !expectedStatuses.contains(current.getStatus())) {
+                return false;
+            }
+            var next = copy(current)
+                    .setStatus(newStatus)
+                    .setVersion(current.getVersion() + 1);
+            if (newExpirationDate != null) {
+                next.setExpirationDate(newExpirationDate);
+            }
+            store(current, next);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean expireIfDue(Integer id, Instant dueAt, Instant expiredAt) {
+        return withStripes(() -> storedUserIdsOf(id), () -> {
+            var current = byId.get(id);
+            if (current == null || current.getStatus() != Status.ACTIVE || current.getExpirationDate() == null
+                    || current.getExpirationDate().isAfter(dueAt)) {
+                return false;
+            }
+            store(current, copy(current)
+                    .setStatus(Status.EXPIRED)
+                    .setExpirationDate(expiredAt)
+                    .setVersion(current.getVersion() + 1));
+            return true;
+        });
+    }
+
+    @Override
+    public Subscription update(Subscription entity) {
+        return withStripes(() -> userIdsOf(List.of(entity)), () -> {
+            var current = byId.get(entity.getId());
+            checkUpdatable(current, entity);
+            return applyUpdate(current, entity);
+        });
+    }
+
+    @Override
+    public Subscription insert(Subscription entity) {
+        return withStripes(() -> List.of(entity.getUserId()), () -> {
+            checkUnique(entity, null);
+            return applyInsert(entity);
+        });
+    }
+
+    @Override
+    public List<Subscription> insertAll(Collection<Subscription> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return withStripes(() -> userIdsOf(entities), () -> {
+            Set<NameKey> names = new HashSet<>();
+            for (var entity : entities) {
+                checkUnique(entity, null);
+                if (!names.add(NameKey.of(entity))) {
+                    throw duplicate(entity);
+                }
+            }
+            entities.forEach(this::applyInsert);
+            return new ArrayList<>(entities);
+        });
+    }
+
+    @Override
+    public List<Subscription> updateAll(Collection<Subscription> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return withStripes(() -> userIdsOf(entities), () -> {
+            for (var entity : entities) {
+                checkUpdatable(byId.get(entity.getId()), entity);
+            }
+            for (var entity : entities) {
+                applyUpdate(byId.get(entity.getId()), entity);
+            }
+            return new ArrayList<>(entities);
+        });
+    }
+
+    @Override
+    public List<Subscription> upsertAll(Collection<Subscription> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return withStripes(() -> userIdsOf(entities), () -> {
+            for (var entity : entities) {
+                if (entity.getId() != null) {
+                    checkUpdatable(byId.get(entity.getId()), entity);
+                } else {
+                    checkUnique(entity, null);
+                }
+            }
+            for (var entity : entities) {
+                if (entity.getId() != null) {
+                    applyUpdate(byId.get(entity.getId()), entity);
+                } else {
+                    applyInsert(entity);
+                }
+            }
+            return new ArrayList<>(entities);
+        });
+    }
+
+    @Override
+    public Subscription upsertByUserIdAndName(Subscription entity) {
+        return withStripes(() -> List.of(entity.getUserId()), () -> {
+            if (!applyUpsertByUserIdAndName(entity)) {
+                throw conflictingProvider(entity);
+            }
+            return entity;
+        });
+    }
+
+    @Override
+    public boolean isUpsertAtomic() {
+        return true;
+    }
+
+    @Override
+    public List<Subscription> upsertAllByUserIdAndName(Collection<Subscription> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return withStripes(() -> userIdsOf(entities), () -> entities.stream()
+                .filter(entity -> !applyUpsertByUserIdAndName(entity))
+                .collect(toCollection(ArrayList::new)));
+    }
+
+    @Override
+    public List<Integer> expireDueBefore(Instant dueBefore, Instant expiredAt, int limit) {
+        checkLimit(limit);
+        var due = byStatusAndExpirationDate.subSet(
+                new ExpirationKey(Status.ACTIVE, Instant.MIN, Integer.MIN_VALUE), true,
+                new ExpirationKey(Status.ACTIVE, dueBefore, Integer.MIN_VALUE), true);
+        TreeSet<Integer> dueIds = new TreeSet<>();
+        for (var key : due) {
+            dueIds.add(key.id());
+            if (dueIds.size() > limit) {
+                dueIds.pollLast();
+            }
+        }
+
+        List<Integer> expiredIds = new ArrayList<>(dueIds.size());
+        for (var id : dueIds) {
+            boolean expired = withStripes(() -> storedUserIdsOf(id), () -> {
+                var current = byId.get(id);
+                if (current == null || current.getStatus() != Status.ACTIVE || current.getExpirationDate() == null
+                        || !current.getExpirationDate().isBefore(dueBefore)) {
+                    return false;
+                }
+                store(current, copy(current)
+                        .setStatus(Status.EXPIRED)
+                        .setExpirationDate(expiredAt)
+                        .setVersion(current.getVersion() + 1));
+                return true;
+            });
+            if (expired) {
+                expiredIds.add(id);
+            }
+        }
+        return expiredIds;
+    }
+
+    private List<Subscription> getByUserId(Integer userId) {
+        var ids = idsByUserId.get(userId);
+        if (ids == null) {
+            return List.of();
+        }
+        List<Subscription> subscriptions = new ArrayList<>(ids.size());
+        for (var id : ids) {
+            var subscription = byId.get(id);
+            if (subscription != null && subscription.getUserId().equals(userId)) {
+                subscriptions.add(subscription);
+            }
+        }
+        return subscriptions;
+    }
+
+    private boolean applyUpsertByUserIdAndName(Subscription entity) {
+        var existingId = idByUserIdAndName.get(NameKey.of(entity));
+        var existing = existingId == null ? null : byId.get(existingId);
+        if (existing == null) {
+            applyInsert(entity);
+            return true;
+        }
+        if (existing.getProvider() != entity.getProvider()) {
+            return false;
+        }
+        var next = copy(existing)
+                .setExpirationDate(entity.getExpirationDate())
+                .setStatus(entity.getStatus())
+                .setVersion(existing.getVersion() + 1);
+        store(existing, next);
+        entity.setId(next.getId());
+        entity.setVersion(next.getVersion());
+        return true;
+    }
+
+    private Subscription applyInsert(Subscription entity) {
+        entity.setId(sequence.incrementAndGet());
+        entity.setVersion(0);
+        store(null, copy(entity));
+        return entity;
+    }
+
+    private Subscription applyUpdate(Subscription current, Subscription entity) {
+        entity.setVersion(entity.getVersion() + 1);
+        store(current, copy(entity));
+        return entity;
+    }
+
+    private void checkUpdatable(Subscription current, Subscription entity) {
+        if (current == null || !Objects.equals(current.getVersion(), entity.getVersion())) {
+            throw new OptimisticLockException(String.format(
+                    "Subscription %d with version %d was modified or deleted concurrently", entity.getId(), entity.getVersion()));
+        }
+        checkUnique(entity, entity.getId());
+    }
+
+    private void checkUnique(Subscription entity, Integer ownId) {
+        var existingId = idByUserIdAndName.get(NameKey.of(entity));
+        if (existingId != null && !existingId.equals(ownId)) {
+            throw duplicate(entity);
+        }
+    }
+
+    private void store(Subscription previous, Subscription next) {
+        byId.put(next.getId(), next);
+        if (previous != null) {
+            unindex(previous);
+        }
+        idsByUserId.computeIfAbsent(next.getUserId(), userId -> new ConcurrentSkipListSet<>()).add(next.getId());
+        idByUserIdAndName.put(NameKey.of(next), next.getId());
+        byStatusAndExpirationDate.add(ExpirationKey.of(next));
+    }
+
+    private void unindex(Subscription subscription) {
+        var id = subscription.getId();
+        var current = byId.get(id);
+        if (current == null || !current.getUserId().equals(subscription.getUserId())) {
+            idsByUserId.computeIfPresent(subscription.getUserId(), (userId, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        if (current == null || !NameKey.of(current).equals(NameKey.of(subscription))) {
+            idByUserIdAndName.remove(NameKey.of(subscription), id);
+        }
+        byStatusAndExpirationDate.remove(ExpirationKey.of(subscription));
+    }
+
+    /**
+     * Locks the stripes of the given user ids and re-reads them under the locks, so entities moved to another user
+     * in between are retried instead of being modified under a stripe that no longer guards them.
+     */
+    private <R> R withStripes(Supplier<Collection<Integer>> userIds, Supplier<R> action) {
+        while (true) {
+            var locks = stripes.getAll(userIds.get());
+            locks.forEach(Lock::lock);
+            try {
+                if (locks.containsAll(stripes.getAll(userIds.get()))) {
+                    return action.get();
+                }
+            } finally {
+                for (int i = locks.size() - 1; i >= 0; i--) {
+                    locks.get(i).unlock();
+                }
+            }
+        }
+    }
+
+    private List<Integer> storedUserIdsOf(Integer id) {
+        var current = byId.get(id);
+        return current == null ? List.of() : List.of(current.getUserId());
+    }
+
+    private List<Integer> userIdsOf(Collection<Subscription> entities) {
+        Set<Integer> userIds = new HashSet<>();
+        for (var entity : entities) {
+            userIds.add(entity.getUserId());
+            if (entity.getId() != null) {
+                userIds.addAll(storedUserIdsOf(entity.getId()));
+            }
+        }
+        return new ArrayList<>(userIds);
+    }
+
+    private void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+    }
+
+    private Page<Integer, Subscription> buildPage(Collection<Subscription> candidates, int limit) {
+        List<Subscription> subscriptions = new ArrayList<>(limit);
+        var hasNext = false;
+        for (var subscription : candidates) {
+            if (subscriptions.size() == limit) {
+                hasNext = true;
+                break;
+            }
+            subscriptions.add(copy(subscription));
+        }
+        var nextCursor = hasNext ? subscriptions.get(subscriptions.size() - 1).getId() : null;
+        return Page.of(subscriptions, nextCursor);
+    }
+
+    @SneakyThrows
+    private RuntimeException duplicate(Subscription entity) {
+        throw new SQLIntegrityConstraintViolationException(String.format(
+                "Subscription %s of user %d already exists", entity.getName(), entity.getUserId()));
+    }
+
+    @SneakyThrows
+    private RuntimeException conflictingProvider(Subscription entity) {
+        throw new SQLIntegrityConstraintViolationException(String.format(
+                "Subscription %s of user %d already exists with another provider", entity.getName(), entity.getUserId()));
+    }
+
+    private static List<Subscription> copyAll(Collection<Subscription> subscriptions) {
+        return subscriptions.stream()
+                .map(InMemorySubscriptionDao::copy)
+                .collect(toCollection(ArrayList::new));
+    }
+
+    private static Subscription copy(Subscription subscription) {
+        return new Subscription(
+                subscription.getId(),
+                subscription.getUserId(),
+                subscription.getName(),
+                subscription.getProvider(),
+                subscription.getExpirationDate(),
+                subscription.getStatus(),
+                subscription.getVersion());
+    }
+
+    private record NameKey(Integer userId, String name) {
+        private static NameKey of(Subscription subscription) {
+            return new NameKey(subscription.getUserId(), subscription.getName());
+        }
+    }
+
+    private record ExpirationKey(Status status, Instant expirationDate, Integer id) {
+        private static ExpirationKey of(Subscription subscription) {
+            return new ExpirationKey(subscription.getStatus(), subscription.getExpirationDate(), subscription.getId());
+        }
+    }
+}
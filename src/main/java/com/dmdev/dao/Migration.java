@@ -0,0 +1,20 @@
+package com.dmdev.dao;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value(staticConstructor = "of")
+public class Migration {
+    int version;
+    String description;
+    List<String> postgresStatements;
+    List<String> h2Statements;
+
+    public List<String> getStatements(Dialect dialect) {
+        return switch (dialect) {
+            case POSTGRES -> postgresStatements;
+            case H2 -> h2Statements;
+        };
+    }
+}
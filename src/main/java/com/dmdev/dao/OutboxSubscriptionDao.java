@@ -0,0 +1,221 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.entity.SubscriptionEventType;
+import com.dmdev.util.TransactionManager;
+import com.dmdev.util.TransactionRunner;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Records every successful write of the delegate as a {@link com.dmdev.entity.SubscriptionEvent} in the same
+ * transaction, so consumers of the outbox see exactly the committed changes.
+ */
+public class OutboxSubscriptionDao implements SubscriptionRepository {
+    private final SubscriptionRepository delegate;
+    private final SubscriptionEventDao eventDao;
+    private final Clock clock;
+
+    public OutboxSubscriptionDao(SubscriptionRepository delegate, SubscriptionEventDao eventDao, Clock clock) {
+        this.delegate = delegate;
+        this.eventDao = eventDao;
+        this.clock = clock;
+    }
+
+    /**
+     * Events are always written through JDBC next to the delegate's writes, so calls are grouped in JDBC transactions.
+     */
+    @Override
+    public TransactionRunner getTransactionRunner() {
+        return TransactionRunner.JDBC;
+    }
+
+    @Override
+    public List<Subscription> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Subscription> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Subscription> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public Optional<Subscription> findById(Integer id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Subscription> findByUserId(Integer userId) {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public List<Subscription> findActiveExpiringBefore(Instant expiringBefore) {
+        return delegate.findActiveExpiringBefore(expiringBefore);
+    }
+
+    @Override
+    public Map<Integer, List<Subscription>> findByUserIds(Collection<Integer> userIds) {
+        return delegate.findByUserIds(userIds);
+    }
+
+    @Override
+    public Page<Integer, Subscription> findPage(Integer afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Page<Integer, Subscription> findByUserIdPage(Integer userId, Integer afterId, int limit) {
+        return delegate.findByUserIdPage(userId, afterId, limit);
+    }
+
+    @Override
+    public boolean delete(Integer id) {
+        return TransactionManager.inTransaction(() -> {
+            if (!eventDao.lockSubscription(id)) {
+                return false;
+            }
+            eventDao.appendByIds(List.of(id), SubscriptionEventType.DELETED, now());
+            return delegate.delete(id);
+        });
+    }
+
+    @Override
+    public boolean transitionStatus(Integer id, Set<Status> expectedStatuses, Status newStatus, Instant newExpirationDate) {
+        return TransactionManager.inTransaction(() -> {
+            var transitioned = delegate.transitionStatus(id, expectedStatuses, newStatus, newExpirationDate);
+            if (transitioned) {
+                eventDao.appendByIds(List.of(id), toEventType(newStatus), now());
+            }
+            return transitioned;
+        });
+    }
+
+    @Override
+    public boolean expireIfDue(Integer id, Instant dueAt, Instant expiredAt) {
+        return TransactionManager.inTransaction(() -> {
+            var expired = delegate.expireIfDue(id, dueAt, expiredAt);
+            if (expired) {
+                eventDao.appendByIds(List.of(id), SubscriptionEventType.EXPIRED, now());
+            }
+            return expired;
+        });
+    }
+
+    @Override
+    public Subscription update(Subscription entity) {
+        return TransactionManager.inTransaction(() -> {
+            var updated = delegate.update(entity);
+            eventDao.appendByIds(List.of(updated.getId()), SubscriptionEventType.UPDATED, now());
+            return updated;
+        });
+    }
+
+    @Override
+    public Subscription insert(Subscription entity) {
+        return TransactionManager.inTransaction(() -> {
+            var inserted = delegate.insert(entity);
+            eventDao.appendByIds(List.of(inserted.getId()), SubscriptionEventType.CREATED, now());
+            return inserted;
+        });
+    }
+
+    @Override
+    public Subscription upsertByUserIdAndName(Subscription entity) {
+        return TransactionManager.inTransaction(() -> {
+            var upserted = delegate.upsertByUserIdAndName(entity);
+            eventDao.appendUpsertedByIds(List.of(upserted.getId()), now());
+            return upserted;
+        });
+    }
+
+    @Override
+    public List<Subscription> insertAll(Collection<Subscription> entities) {
+        return TransactionManager.inTransaction(() -> {
+            var inserted = delegate.insertAll(entities);
+            eventDao.appendByIds(ids(inserted), SubscriptionEventType.CREATED, now());
+            return inserted;
+        });
+    }
+
+    @Override
+    public List<Subscription> updateAll(Collection<Subscription> entities) {
+        return TransactionManager.inTransaction(() -> {
+            var updated = delegate.updateAll(entities);
+            eventDao.appendByIds(ids(updated), SubscriptionEventType.UPDATED, now());
+            return updated;
+        });
+    }
+
+    @Override
+    public List<Subscription> upsertAll(Collection<Subscription> entities) {
+        return TransactionManager.inTransaction(() -> {
+            var upserted = delegate.upsertAll(entities);
+            eventDao.appendUpsertedByIds(ids(upserted), now());
+            return upserted;
+        });
+    }
+
+    @Override
+    public boolean isUpsertAtomic() {
+        return delegate.isUpsertAtomic();
+    }
+
+    @Override
+    public List<Subscription> upsertAllByUserIdAndName(Collection<Subscription> entities) {
+        return TransactionManager.inTransaction(() -> {
+            var rejected = delegate.upsertAllByUserIdAndName(entities);
+            Set<Subscription> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+            skipped.addAll(rejected);
+            var accepted = entities.stream()
+                    .filter(entity -> !skipped.contains(entity))
+                    .toList();
+            eventDao.appendUpsertedByUserIdAndName(accepted, now());
+            return rejected;
+        });
+    }
+
+    @Override
+    public List<Integer> expireDueBefore(Instant dueBefore, Instant expiredAt, int limit) {
+        return TransactionManager.inTransaction(() -> {
+            var expiredIds = delegate.expireDueBefore(dueBefore, expiredAt, limit);
+            eventDao.appendByIds(expiredIds, SubscriptionEventType.EXPIRED, now());
+            return expiredIds;
+        });
+    }
+
+    private Instant now() {
+        return Instant.now(clock);
+    }
+
+    private static List<Integer> ids(List<Subscription> subscriptions) {
+        return subscriptions.stream()
+                .map(Subscription::getId)
+                .toList();
+    }
+
+    private static SubscriptionEventType toEventType(Status status) {
+        return switch (status) {
+            case CANCELED -> SubscriptionEventType.CANCELED;
+            case EXPIRED -> SubscriptionEventType.EXPIRED;
+            case ACTIVE -> SubscriptionEventType.UPDATED;
+        };
+    }
+}
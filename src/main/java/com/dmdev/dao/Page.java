@@ -0,0 +1,15 @@
+package com.dmdev.dao;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value(staticConstructor = "of")
+public class Page<K, T> {
+    List<T> content;
+    K nextCursor;
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,174 @@
+package com.dmdev.dao;
+
+import lombok.extern.java.Log;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+@Log
+public class SchemaMigrator {
+    private static final String CREATE_SCHEMA_VERSION_SQL = """
+            CREATE TABLE IF NOT EXISTS schema_version
+            (
+                version INT PRIMARY KEY ,
+                description VARCHAR(128) NOT NULL ,
+                applied_at TIMESTAMP NOT NULL
+            )
+            """;
+    private static final String LOCK_SCHEMA_VERSION_SQL = "LOCK TABLE schema_version IN SHARE ROW EXCLUSIVE MODE";
+    private static final String GET_CURRENT_VERSION_SQL = "SELECT COALESCE(MAX(version), 0) FROM schema_version";
+    private static final String SAVE_VERSION_SQL = "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)";
+
+    private static final Migration CREATE_SUBSCRIPTION = Migration.of(1, "create subscription table",
+            List.of("""
+                    CREATE TABLE IF NOT EXISTS subscription
+                    (
+                        id SERIAL PRIMARY KEY ,
+                        user_id INT NOT NULL ,
+                        name VARCHAR(64) NOT NULL ,
+                        provider VARCHAR(16) NOT NULL ,
+                        expiration_date TIMESTAMP NOT NULL ,
+                        status VARCHAR(16) NOT NULL ,
+                        UNIQUE (user_id, name)
+                    )
+                    """),
+            List.of("""
+                    CREATE TABLE IF NOT EXISTS subscription
+                    (
+                        id INT AUTO_INCREMENT PRIMARY KEY ,
+                        user_id INT NOT NULL ,
+                        name VARCHAR(64) NOT NULL ,
+                        provider VARCHAR(16) NOT NULL ,
+                        expiration_date TIMESTAMP NOT NULL ,
+                        status VARCHAR(16) NOT NULL ,
+                        UNIQUE (user_id, name)
+                    )
+                    """));
+    private static final Migration ADD_SUBSCRIPTION_VERSION = Migration.of(2, "add subscription optimistic lock version",
+            List.of("ALTER TABLE subscription ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 0"),
+            List.of("ALTER TABLE subscription ADD COLUMN IF NOT EXISTS version INT NOT NULL DEFAULT 0"));
+    private static final Migration INDEX_SUBSCRIPTION_HOT_PATHS = Migration.of(3, "index expiration sweep and user lookups",
+            List.of("""
+                            CREATE INDEX IF NOT EXISTS subscription_active_expiration_date_idx
+                                ON subscription (expiration_date)
+                                WHERE status = 'ACTIVE'
+                            """,
+                    """
+                            CREATE INDEX IF NOT EXISTS subscription_user_id_covering_idx
+                                ON subscription (user_id, id)
+                                INCLUDE (name, provider, expiration_date, status, version)
+                            """),
+            List.of("CREATE INDEX IF NOT EXISTS subscription_status_expiration_date_idx ON subscription (status, expiration_date)",
+                    "CREATE INDEX IF NOT EXISTS subscription_user_id_id_idx ON subscription (user_id, id)"));
+    private static final Migration CREATE_SUBSCRIPTION_EVENT = Migration.of(4, "create subscription event outbox",
+            List.of("""
+                    CREATE TABLE IF NOT EXISTS subscription_event
+                    (
+                        id BIGSERIAL PRIMARY KEY ,
+                        type VARCHAR(16) NOT NULL ,
+                        occurred_at TIMESTAMP NOT NULL ,
+                        subscription_id INT NOT NULL ,
+                        user_id INT NOT NULL ,
+                        name VARCHAR(64) NOT NULL ,
+                        provider VARCHAR(16) NOT NULL ,
+                        expiration_date TIMESTAMP NOT NULL ,
+                        status VARCHAR(16) NOT NULL ,
+                        version INT NOT NULL
+                    )
+                    """),
+            List.of("""
+                    CREATE TABLE IF NOT EXISTS subscription_event
+                    (
+                        id BIGINT AUTO_INCREMENT PRIMARY KEY ,
+                        type VARCHAR(16) NOT NULL ,
+                        occurred_at TIMESTAMP NOT NULL ,
+                        subscription_id INT NOT NULL ,
+                        user_id INT NOT NULL ,
+                        name VARCHAR(64) NOT NULL ,
+                        provider VARCHAR(16) NOT NULL ,
+                        expiration_date TIMESTAMP NOT NULL ,
+                        status VARCHAR(16) NOT NULL ,
+                        version INT NOT NULL
+                    )
+                    """));
+
+    private static final SchemaMigrator INSTANCE = new SchemaMigrator(List.of(
+            CREATE_SUBSCRIPTION,
+            ADD_SUBSCRIPTION_VERSION,
+            INDEX_SUBSCRIPTION_HOT_PATHS,
+            CREATE_SUBSCRIPTION_EVENT));
+
+    private final List<Migration> migrations;
+
+    public SchemaMigrator(List<Migration> migrations) {
+        this.migrations = migrations.stream()
+                .sorted(Comparator.comparingInt(Migration::getVersion))
+                .toList();
+        for (int i = 1; i < this.migrations.size(); i++) {
+            if (this.migrations.get(i).getVersion() == this.migrations.get(i - 1).getVersion()) {
+                throw new IllegalArgumentException("Duplicate migration version: " + this.migrations.get(i).getVersion());
+            }
+        }
+    }
+
+    public static SchemaMigrator getInstance() {
+        return INSTANCE;
+    }
+
+    public int migrate(Connection connection) throws SQLException {
+        return migrate(connection, Integer.MAX_VALUE);
+    }
+
+    public int migrate(Connection connection, int targetVersion) throws SQLException {
+        var dialect = Dialect.of(connection);
+        var autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (var statement = connection.createStatement()) {
+            statement.execute(CREATE_SCHEMA_VERSION_SQL);
+            if (dialect == Dialect.POSTGRES) {
+                statement.execute(LOCK_SCHEMA_VERSION_SQL);
+            }
+            var currentVersion = getCurrentVersion(connection);
+            var applied = 0;
+            for (var migration : migrations) {
+                if (migration.getVersion() <= currentVersion || migration.getVersion() > targetVersion) {
+                    continue;
+                }
+                for (var sql : migration.getStatements(dialect)) {
+                    statement.execute(sql);
+                }
+                saveVersion(connection, migration);
+                log.info(() -> "Applied schema migration %d: %s".formatted(migration.getVersion(), migration.getDescription()));
+                applied++;
+            }
+            connection.commit();
+            return applied;
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    public int getCurrentVersion(Connection connection) throws SQLException {
+        try (var statement = connection.createStatement();
+             var resultSet = statement.executeQuery(GET_CURRENT_VERSION_SQL)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    private void saveVersion(Connection connection, Migration migration) throws SQLException {
+        try (var preparedStatement = connection.prepareStatement(SAVE_VERSION_SQL)) {
+            preparedStatement.setInt(1, migration.getVersion());
+            preparedStatement.setString(2, migration.getDescription());
+            preparedStatement.setTimestamp(3, Timestamp.from(Instant.now()));
+            preparedStatement.executeUpdate();
+        }
+    }
+}
@@ -1,23 +1,55 @@
 package com.dmdev.dao;
 
-import com.dmdev.entity.Provider;
 import com.dmdev.entity.Status;
 import com.dmdev.entity.Subscription;
+import com.dmdev.exception.OptimisticLockException;
+import com.dmdev.metrics.MetricsRegistry;
+import com.dmdev.util.BatchLoader;
 import com.dmdev.util.ConnectionManager;
+import com.dmdev.util.PropertiesUtil;
+import com.dmdev.util.TransactionManager;
+import com.dmdev.util.TransactionRunner;
 import lombok.SneakyThrows;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
 import static java.sql.Statement.RETURN_GENERATED_KEYS;
 
-public class SubscriptionDao implements Dao<Integer, Subscription> {
+public class SubscriptionDao implements SubscriptionRepository {
     private static final SubscriptionDao INSTANCE = new SubscriptionDao();
+    private static final String BATCH_SIZE_KEY = "db.batch-size";
+    private static final int BATCH_SIZE = PropertiesUtil.getInt(BATCH_SIZE_KEY, 500);
+    private static final String FETCH_SIZE_KEY = "db.fetch-size";
+    private static final int FETCH_SIZE = PropertiesUtil.getInt(FETCH_SIZE_KEY, 1000);
+    private static final String IN_LIST_CHUNK_SIZE_KEY = "db.in-list-chunk-size";
+    private static final int IN_LIST_CHUNK_SIZE = PropertiesUtil.getInt(IN_LIST_CHUNK_SIZE_KEY, 100);
+    private static final String LOADER_DISPATCH_DELAY_KEY = "db.loader.dispatch-delay-ms";
+    private static final Duration LOADER_DISPATCH_DELAY =
+            Duration.ofMillis(PropertiesUtil.getLong(LOADER_DISPATCH_DELAY_KEY, 2));
 
     private static final String GET_ALL_SQL = """
             SELECT
@@ -26,53 +58,155 @@ public class SubscriptionDao implements Dao<Integer, Subscription> {
                 name,
                 provider,
                 expiration_date,
-                status
+                status,
+                version
             FROM subscription
             """;
     private static final String GET_BY_ID_SQL = GET_ALL_SQL + " WHERE id = ?";
     private static final String GET_BY_USER_ID_SQL = GET_ALL_SQL + " WHERE user_id = ?";
+    private static final String GET_BY_USER_ID_ARRAY_SQL = GET_ALL_SQL + " WHERE user_id = ANY(?) ORDER BY id";
+    private static final String GET_BY_USER_ID_IN_SQL = GET_ALL_SQL + " WHERE user_id IN %s ORDER BY id";
+    private static final String GET_ACTIVE_EXPIRING_BEFORE_SQL = GET_ALL_SQL + " WHERE status = 'ACTIVE' AND expiration_date < ?";
+    private static final String GET_FIRST_PAGE_SQL = GET_ALL_SQL + " ORDER BY id LIMIT ?";
+    private static final String GET_PAGE_AFTER_ID_SQL = GET_ALL_SQL + " WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String GET_FIRST_PAGE_BY_USER_ID_SQL = GET_BY_USER_ID_SQL + " ORDER BY id LIMIT ?";
+    private static final String GET_PAGE_BY_USER_ID_AFTER_ID_SQL = GET_BY_USER_ID_SQL + " AND id > ? ORDER BY id LIMIT ?";
     private static final String DELETE_BY_ID_SQL = "DELETE FROM subscription WHERE id = ?";
     private static final String SAVE_SQL =
-            "INSERT INTO subscription (user_id, name, provider, expiration_date, status) VALUES (?, ?, ?, ?, ?)";
+            "INSERT INTO subscription (user_id, name, provider, expiration_date, status, version) VALUES (?, ?, ?, ?, ?, 0)";
     private static final String UPDATE_BY_ID_SQL = """
             UPDATE subscription
             SET user_id = ?,
                 name = ?,
                 provider = ?,
                 expiration_date = ?,
-                status = ?
-            WHERE id = ?
+                status = ?,
+                version = version + 1
+            WHERE id = ? AND version = ?
             """;
 
+    private static final String POSTGRES_UPSERT_BY_USER_ID_AND_NAME_SQL = """
+            INSERT INTO subscription (user_id, name, provider, expiration_date, status, version)
+            VALUES (?, ?, ?, ?, ?, 0)
+            ON CONFLICT (user_id, name) DO UPDATE
+            SET expiration_date = EXCLUDED.expiration_date,
+                status = EXCLUDED.status,
+                version = subscription.version + 1
+            WHERE subscription.provider = EXCLUDED.provider
+            """;
+    private static final String H2_UPSERT_BY_USER_ID_AND_NAME_SQL = """
+            MERGE INTO subscription AS target
+            USING (VALUES (CAST(? AS INT), CAST(? AS VARCHAR(64)), CAST(? AS VARCHAR(16)), CAST(? AS TIMESTAMP), CAST(? AS VARCHAR(16))))
+                AS source (user_id, name, provider, expiration_date, status)
+            ON target.user_id = source.user_id AND target.name = source.name
+            WHEN MATCHED AND target.provider = source.provider THEN
+                UPDATE SET expiration_date = source.expiration_date,
+                           status = source.status,
+                           version = target.version + 1
+            WHEN NOT MATCHED THEN
+                INSERT (user_id, name, provider, expiration_date, status, version)
+                VALUES (source.user_id, source.name, source.provider, source.expiration_date, source.status, 0)
+            """;
+    private static final String POSTGRES_EXPIRE_DUE_BEFORE_SQL = """
+            UPDATE subscription
+            SET status = 'EXPIRED',
+                expiration_date = ?,
+                version = version + 1
+            WHERE id IN (SELECT id
+                         FROM subscription
+                         WHERE status = 'ACTIVE' AND expiration_date < ?
+                         ORDER BY id
+                         LIMIT ?
+                         FOR UPDATE SKIP LOCKED)
+            RETURNING id
+            """;
+    private static final String H2_EXPIRE_DUE_BEFORE_SQL = """
+            SELECT id FROM FINAL TABLE (
+                UPDATE subscription
+                SET status = 'EXPIRED',
+                    expiration_date = ?,
+                    version = version + 1
+                WHERE id IN (SELECT id
+                             FROM subscription
+                             WHERE status = 'ACTIVE' AND expiration_date < ?
+                             ORDER BY id
+                             LIMIT ?)
+            )
+            """;
+    private static final String EXPIRE_IF_DUE_SQL = """
+            UPDATE subscription
+            SET status = 'EXPIRED',
+                expiration_date = ?,
+                version = version + 1
+            WHERE id = ? AND status = 'ACTIVE' AND expiration_date <= ?
+            """;
+    private static final String TRANSITION_STATUS_SQL = "UPDATE subscription SET status = ?, version = version + 1 WHERE id = ? AND status IN ";
+    private static final String TRANSITION_STATUS_AND_EXPIRATION_DATE_SQL =
+            "UPDATE subscription SET status = ?, expiration_date = ?, version = version + 1 WHERE id = ? AND status IN ";
+    private static final String[] GENERATED_COLUMNS = {"id", "version"};
+
+    private volatile Dialect dialect;
+
     public static SubscriptionDao getInstance() {
         return INSTANCE;
     }
 
+    @Override
+    public TransactionRunner getTransactionRunner() {
+        return TransactionRunner.JDBC;
+    }
+
     @Override
     @SneakyThrows
     public List<Subscription> findAll() {
-        try (var connection = ConnectionManager.get();
+        try (var ignored = MetricsRegistry.get().startTimer("dao.findAll");
+             var connection = ConnectionManager.getForRead();
              var preparedStatement = connection.prepareStatement(GET_ALL_SQL)) {
-            var resultSet = preparedStatement.executeQuery();
-            List<Subscription> subscriptions = new ArrayList<>();
-            while (resultSet.next()) {
-                subscriptions.add(buildEntity(resultSet));
+            var subscriptions = buildEntities(preparedStatement.executeQuery());
+            MetricsRegistry.get().recordValue("dao.findAll.rows", subscriptions.size());
+            return subscriptions;
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public Stream<Subscription> streamAll() {
+        var connection = ConnectionManager.getForRead();
+        try {
+            var ownTransaction = connection.getAutoCommit();
+            if (ownTransaction) {
+                connection.setAutoCommit(false);
             }
+            var preparedStatement = connection.prepareStatement(GET_ALL_SQL, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(FETCH_SIZE);
+            var resultSet = preparedStatement.executeQuery();
 
-            return subscriptions;
+            return StreamSupport.stream(new ResultSetSpliterator(resultSet), false)
+                    .onClose(() -> closeCursor(connection, preparedStatement, ownTransaction));
+        } catch (SQLException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void forEach(Consumer<? super Subscription> action) {
+        try (var subscriptions = streamAll()) {
+            subscriptions.forEach(action);
         }
     }
 
     @Override
     @SneakyThrows
     public Optional<Subscription> findById(Integer id) {
-        try (var connection = ConnectionManager.get();
+        try (var ignored = MetricsRegistry.get().startTimer("dao.findById");
+             var connection = ConnectionManager.getForRead();
              var preparedStatement = connection.prepareStatement(GET_BY_ID_SQL)) {
             preparedStatement.setObject(1, id);
 
             var resultSet = preparedStatement.executeQuery();
             return resultSet.next()
-                    ? Optional.of(buildEntity(resultSet))
+                    ? Optional.of(SubscriptionRowMapper.of(resultSet).map())
                     : Optional.empty();
         }
     }
@@ -80,7 +214,8 @@ public class SubscriptionDao implements Dao<Integer, Subscription> {
     @Override
     @SneakyThrows
     public boolean delete(Integer id) {
-        try (var connection = ConnectionManager.get();
+        try (var ignored = MetricsRegistry.get().startTimer("dao.delete");
+             var connection = ConnectionManager.get();
              var preparedStatement = connection.prepareStatement(DELETE_BY_ID_SQL)) {
             preparedStatement.setObject(1, id);
 
@@ -88,15 +223,54 @@ public class SubscriptionDao implements Dao<Integer, Subscription> {
         }
     }
 
+    @Override
+    @SneakyThrows
+    public boolean transitionStatus(Integer id, Set<Status> expectedStatuses, Status newStatus, Instant newExpirationDate) {
+        if (expectedStatuses.isEmpty()) {
+            return false;
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("dao.transitionStatus");
+             var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(
+                     getTransitionStatusSql(expectedStatuses.size(), newExpirationDate != null))) {
+            var index = 1;
+            preparedStatement.setObject(index++, newStatus.name());
+            if (newExpirationDate != null) {
+                preparedStatement.setObject(index++, Timestamp.from(newExpirationDate));
+            }
+            preparedStatement.setObject(index++, id);
+            for (var expectedStatus : expectedStatuses) {
+                preparedStatement.setObject(index++, expectedStatus.name());
+            }
+
+            return preparedStatement.executeUpdate() > 0;
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public boolean expireIfDue(Integer id, Instant dueAt, Instant expiredAt) {
+        try (var ignored = MetricsRegistry.get().startTimer("dao.expireIfDue");
+             var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(EXPIRE_IF_DUE_SQL)) {
+            preparedStatement.setObject(1, Timestamp.from(expiredAt));
+            preparedStatement.setObject(2, id);
+            preparedStatement.setObject(3, Timestamp.from(dueAt));
+
+            return preparedStatement.executeUpdate() > 0;
+        }
+    }
+
     @Override
     @SneakyThrows
     public Subscription update(Subscription entity) {
-        try (var connection = ConnectionManager.get();
+        try (var ignored = MetricsRegistry.get().startTimer("dao.update");
+             var connection = ConnectionManager.get();
              var preparedStatement = connection.prepareStatement(UPDATE_BY_ID_SQL)) {
-            prepareStatementToUpsert(preparedStatement, entity);
-            preparedStatement.setObject(6, entity.getId());
+            prepareStatementToUpdate(preparedStatement, entity);
 
-            preparedStatement.executeUpdate();
+            checkUpdated(preparedStatement.executeUpdate(), entity);
+            entity.setVersion(entity.getVersion() + 1);
             return entity;
         }
     }
@@ -104,7 +278,8 @@ public class SubscriptionDao implements Dao<Integer, Subscription> {
     @Override
     @SneakyThrows
     public Subscription insert(Subscription entity) {
-        try (var connection = ConnectionManager.get();
+        try (var ignored = MetricsRegistry.get().startTimer("dao.insert");
+             var connection = ConnectionManager.get();
              var preparedStatement = connection.prepareStatement(SAVE_SQL, RETURN_GENERATED_KEYS)) {
             prepareStatementToUpsert(preparedStatement, entity);
 
@@ -113,36 +288,412 @@ public class SubscriptionDao implements Dao<Integer, Subscription> {
             var generatedKeys = preparedStatement.getGeneratedKeys();
             generatedKeys.next();
             entity.setId(generatedKeys.getObject("id", Integer.class));
+            entity.setVersion(0);
 
             return entity;
         }
     }
 
+    @Override
+    @SneakyThrows
+    public List<Subscription> insertAll(Collection<Subscription> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("dao.insertAll")) {
+            return TransactionManager.inTransaction(connection -> insertBatch(connection, entities));
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public List<Subscription> updateAll(Collection<Subscription> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("dao.updateAll")) {
+            return TransactionManager.inTransaction(connection -> updateBatch(connection, entities));
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public List<Subscription> upsertAll(Collection<Subscription> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Subscription> existing = new ArrayList<>();
+        List<Subscription> created = new ArrayList<>();
+        for (var entity : entities) {
+            (entity.getId() != null ? existing : created).add(entity);
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("dao.upsertAll")) {
+            return TransactionManager.inTransaction(connection -> {
+                updateBatch(connection, existing);
+                insertBatch(connection, created);
+                return new ArrayList<>(entities);
+            });
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public Subscription upsertByUserIdAndName(Subscription entity) {
+        try (var ignored = MetricsRegistry.get().startTimer("dao.upsert");
+             var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(getUpsertByUserIdAndNameSql(connection), GENERATED_COLUMNS)) {
+            prepareStatementToUpsert(preparedStatement, entity);
+
+            if (preparedStatement.executeUpdate() == 0) {
+                throw new SQLIntegrityConstraintViolationException(String.format(
+                        "Subscription %s of user %d already exists with another provider", entity.getName(), entity.getUserId()));
+            }
+
+            var generatedKeys = preparedStatement.getGeneratedKeys();
+            generatedKeys.next();
+            entity.setId(generatedKeys.getObject("id", Integer.class));
+            entity.setVersion(generatedKeys.getObject("version", Integer.class));
+
+            return entity;
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public boolean isUpsertAtomic() {
+        var current = dialect;
+        if (current == null) {
+            try (var connection = ConnectionManager.getForRead()) {
+                current = dialect = Dialect.of(connection);
+            }
+        }
+        return current == Dialect.POSTGRES;
+    }
+
+    @Override
+    @SneakyThrows
+    public List<Subscription> upsertAllByUserIdAndName(Collection<Subscription> entities) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("dao.upsertAllByUserIdAndName")) {
+            return TransactionManager.inTransaction(connection -> {
+                List<Subscription> rejected = new ArrayList<>();
+                try (var preparedStatement = connection.prepareStatement(getUpsertByUserIdAndNameSql(connection))) {
+                    List<Subscription> pending = new ArrayList<>(Math.min(BATCH_SIZE, entities.size()));
+                    for (var entity : entities) {
+                        prepareStatementToUpsert(preparedStatement, entity);
+                        preparedStatement.addBatch();
+                        pending.add(entity);
+                        if (pending.size() == BATCH_SIZE) {
+                            collectRejected(preparedStatement.executeBatch(), pending, rejected);
+                            pending.clear();
+                        }
+                    }
+                    if (!pending.isEmpty()) {
+                        collectRejected(preparedStatement.executeBatch(), pending, rejected);
+                    }
+                }
+                return rejected;
+            });
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public List<Integer> expireDueBefore(Instant dueBefore, Instant expiredAt, int limit) {
+        checkLimit(limit);
+        try (var ignored = MetricsRegistry.get().startTimer("dao.expireDueBefore");
+             var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(getExpireDueBeforeSql(connection))) {
+            preparedStatement.setObject(1, Timestamp.from(expiredAt));
+            preparedStatement.setObject(2, Timestamp.from(dueBefore));
+            preparedStatement.setInt(3, limit);
+
+            var resultSet = preparedStatement.executeQuery();
+            List<Integer> expiredIds = new ArrayList<>();
+            while (resultSet.next()) {
+                expiredIds.add(resultSet.getObject("id", Integer.class));
+            }
+
+            return expiredIds;
+        }
+    }
+
+    @Override
     @SneakyThrows
     public List<Subscription> findByUserId(Integer userId) {
-        try (var connection = ConnectionManager.get();
+        try (var ignored = MetricsRegistry.get().startTimer("dao.findByUserId");
+             var connection = ConnectionManager.getForRead();
              var preparedStatement = connection.prepareStatement(GET_BY_USER_ID_SQL)) {
             preparedStatement.setObject(1, userId);
 
-            var resultSet = preparedStatement.executeQuery();
-            List<Subscription> subscriptions = new ArrayList<>();
+            var subscriptions = buildEntities(preparedStatement.executeQuery());
+            MetricsRegistry.get().recordValue("dao.findByUserId.rows", subscriptions.size());
+            return subscriptions;
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public List<Subscription> findActiveExpiringBefore(Instant expiringBefore) {
+        try (var ignored = MetricsRegistry.get().startTimer("dao.findActiveExpiringBefore");
+             var connection = ConnectionManager.getForRead();
+             var preparedStatement = connection.prepareStatement(GET_ACTIVE_EXPIRING_BEFORE_SQL)) {
+            preparedStatement.setObject(1, Timestamp.from(expiringBefore));
+
+            var subscriptions = buildEntities(preparedStatement.executeQuery());
+            MetricsRegistry.get().recordValue("dao.findActiveExpiringBefore.rows", subscriptions.size());
+            return subscriptions;
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public Map<Integer, List<Subscription>> findByUserIds(Collection<Integer> userIds) {
+        Map<Integer, List<Subscription>> subscriptionsByUserId = new LinkedHashMap<>();
+        for (var userId : userIds) {
+            subscriptionsByUserId.putIfAbsent(userId, new ArrayList<>());
+        }
+        if (subscriptionsByUserId.isEmpty()) {
+            return subscriptionsByUserId;
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("dao.findByUserIds");
+             var connection = ConnectionManager.getForRead()) {
+            List<Integer> distinctUserIds = new ArrayList<>(subscriptionsByUserId.keySet());
+            switch (Dialect.of(connection)) {
+                case POSTGRES -> findByUserIdArray(connection, distinctUserIds, subscriptionsByUserId);
+                case H2 -> findByUserIdInChunks(connection, distinctUserIds, subscriptionsByUserId);
+            }
+            MetricsRegistry.get().recordValue("dao.findByUserIds.users", distinctUserIds.size());
+            return subscriptionsByUserId;
+        }
+    }
+
+    public BatchLoader<Integer, List<Subscription>> newByUserIdLoader() {
+        return new BatchLoader<>(this::findByUserIds, BATCH_SIZE);
+    }
+
+    public BatchLoader<Integer, List<Subscription>> newByUserIdLoader(ScheduledExecutorService scheduler) {
+        return new BatchLoader<>(this::findByUserIds, BATCH_SIZE, LOADER_DISPATCH_DELAY, scheduler);
+    }
+
+    @Override
+    @SneakyThrows
+    public Page<Integer, Subscription> findPage(Integer afterId, int limit) {
+        checkLimit(limit);
+        try (var ignored = MetricsRegistry.get().startTimer("dao.findPage");
+             var connection = ConnectionManager.getForRead();
+             var preparedStatement = connection.prepareStatement(afterId == null ? GET_FIRST_PAGE_SQL : GET_PAGE_AFTER_ID_SQL)) {
+            var index = 1;
+            if (afterId != null) {
+                preparedStatement.setObject(index++, afterId);
+            }
+            preparedStatement.setInt(index, limit + 1);
+
+            return buildPage(preparedStatement.executeQuery(), limit);
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public Page<Integer, Subscription> findByUserIdPage(Integer userId, Integer afterId, int limit) {
+        checkLimit(limit);
+        try (var ignored = MetricsRegistry.get().startTimer("dao.findByUserIdPage");
+             var connection = ConnectionManager.getForRead();
+             var preparedStatement = connection.prepareStatement(afterId == null ? GET_FIRST_PAGE_BY_USER_ID_SQL : GET_PAGE_BY_USER_ID_AFTER_ID_SQL)) {
+            var index = 1;
+            preparedStatement.setObject(index++, userId);
+            if (afterId != null) {
+                preparedStatement.setObject(index++, afterId);
+            }
+            preparedStatement.setInt(index, limit + 1);
+
+            return buildPage(preparedStatement.executeQuery(), limit);
+        }
+    }
+
+    private void findByUserIdArray(Connection connection, List<Integer> userIds,
+                                   Map<Integer, List<Subscription>> subscriptionsByUserId) throws SQLException {
+        try (var preparedStatement = connection.prepareStatement(GET_BY_USER_ID_ARRAY_SQL)) {
+            preparedStatement.setArray(1, connection.createArrayOf("integer", userIds.toArray()));
+            groupByUserId(preparedStatement.executeQuery(), subscriptionsByUserId);
+        }
+    }
+
+    private void findByUserIdInChunks(Connection connection, List<Integer> userIds,
+                                      Map<Integer, List<Subscription>> subscriptionsByUserId) throws SQLException {
+        var chunkSize = Math.min(IN_LIST_CHUNK_SIZE, userIds.size());
+        try (var preparedStatement = connection.prepareStatement(getByUserIdInSql(chunkSize))) {
+            for (int from = 0; from < userIds.size(); from += chunkSize) {
+                for (int i = 0; i < chunkSize; i++) {
+                    preparedStatement.setObject(i + 1, userIds.get(Math.min(from + i, userIds.size() - 1)));
+                }
+                groupByUserId(preparedStatement.executeQuery(), subscriptionsByUserId);
+            }
+        }
+    }
+
+    private String getByUserIdInSql(int parameterCount) {
+        return GET_BY_USER_ID_IN_SQL.formatted(Stream.generate(() -> "?")
+                .limit(parameterCount)
+                .collect(Collectors.joining(", ", "(", ")")));
+    }
+
+    private void groupByUserId(ResultSet resultSet, Map<Integer, List<Subscription>> subscriptionsByUserId) throws SQLException {
+        try (resultSet) {
+            var rowMapper = SubscriptionRowMapper.of(resultSet);
             while (resultSet.next()) {
-                subscriptions.add(buildEntity(resultSet));
+                var subscription = rowMapper.map();
+                subscriptionsByUserId.get(subscription.getUserId()).add(subscription);
             }
+        }
+    }
 
-            return subscriptions;
+    private String getUpsertByUserIdAndNameSql(Connection connection) throws SQLException {
+        return switch (Dialect.of(connection)) {
+            case POSTGRES -> POSTGRES_UPSERT_BY_USER_ID_AND_NAME_SQL;
+            case H2 -> H2_UPSERT_BY_USER_ID_AND_NAME_SQL;
+        };
+    }
+
+    private String getExpireDueBeforeSql(Connection connection) throws SQLException {
+        return switch (Dialect.of(connection)) {
+            case POSTGRES -> POSTGRES_EXPIRE_DUE_BEFORE_SQL;
+            case H2 -> H2_EXPIRE_DUE_BEFORE_SQL;
+        };
+    }
+
+    private String getTransitionStatusSql(int expectedStatusCount, boolean withExpirationDate) {
+        var sql = withExpirationDate ? TRANSITION_STATUS_AND_EXPIRATION_DATE_SQL : TRANSITION_STATUS_SQL;
+        return sql + Stream.generate(() -> "?")
+                .limit(expectedStatusCount)
+                .collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+    }
+
+    private Page<Integer, Subscription> buildPage(ResultSet resultSet, int limit) throws SQLException {
+        var rowMapper = SubscriptionRowMapper.of(resultSet);
+        List<Subscription> subscriptions = new ArrayList<>(limit);
+        var hasNext = false;
+        while (resultSet.next()) {
+            if (subscriptions.size() == limit) {
+                hasNext = true;
+                break;
+            }
+            subscriptions.add(rowMapper.map());
+        }
+        var nextCursor = hasNext ? subscriptions.get(subscriptions.size() - 1).getId() : null;
+        return Page.of(subscriptions, nextCursor);
+    }
+
+    private List<Subscription> insertBatch(Connection connection, Collection<Subscription> entities) throws SQLException {
+        List<Subscription> inserted = new ArrayList<>(entities.size());
+        if (entities.isEmpty()) {
+            return inserted;
+        }
+        try (var preparedStatement = connection.prepareStatement(SAVE_SQL, RETURN_GENERATED_KEYS)) {
+            List<Subscription> pending = new ArrayList<>(Math.min(BATCH_SIZE, entities.size()));
+            for (var entity : entities) {
+                prepareStatementToUpsert(preparedStatement, entity);
+                preparedStatement.addBatch();
+                pending.add(entity);
+                if (pending.size() == BATCH_SIZE) {
+                    executeInsertBatch(preparedStatement, pending);
+                    inserted.addAll(pending);
+                    pending.clear();
+                }
+            }
+            if (!pending.isEmpty()) {
+                executeInsertBatch(preparedStatement, pending);
+                inserted.addAll(pending);
+            }
         }
+        return inserted;
     }
 
-    private Subscription buildEntity(ResultSet resultSet) throws SQLException {
-        return Subscription.builder()
-                .id(resultSet.getObject("id", Integer.class))
-                .userId(resultSet.getObject("user_id", Integer.class))
-                .name(resultSet.getObject("name", String.class))
-                .provider(Provider.valueOf(resultSet.getObject("provider", String.class)))
-                .expirationDate(resultSet.getObject("expiration_date", Timestamp.class).toInstant())
-                .status(Status.valueOf(resultSet.getObject("status", String.class)))
-                .build();
+    private void executeInsertBatch(PreparedStatement preparedStatement, List<Subscription> pending) throws SQLException {
+        preparedStatement.executeBatch();
+        try (var generatedKeys = preparedStatement.getGeneratedKeys()) {
+            for (var entity : pending) {
+                generatedKeys.next();
+                entity.setId(generatedKeys.getObject("id", Integer.class));
+                entity.setVersion(0);
+            }
+        }
+    }
+
+    private List<Subscription> updateBatch(Connection connection, Collection<Subscription> entities) throws SQLException {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        try (var preparedStatement = connection.prepareStatement(UPDATE_BY_ID_SQL)) {
+            List<Subscription> pending = new ArrayList<>(Math.min(BATCH_SIZE, entities.size()));
+            for (var entity : entities) {
+                prepareStatementToUpdate(preparedStatement, entity);
+                preparedStatement.addBatch();
+                pending.add(entity);
+                if (pending.size() == BATCH_SIZE) {
+                    executeUpdateBatch(preparedStatement, pending);
+                    pending.clear();
+                }
+            }
+            if (!pending.isEmpty()) {
+                executeUpdateBatch(preparedStatement, pending);
+            }
+        }
+        for (var entity : entities) {
+            entity.setVersion(entity.getVersion() + 1);
+        }
+        return new ArrayList<>(entities);
+    }
+
+    @SneakyThrows
+    private void closeCursor(Connection connection, PreparedStatement preparedStatement, boolean ownTransaction) {
+        try (connection; preparedStatement) {
+            if (ownTransaction) {
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private void executeUpdateBatch(PreparedStatement preparedStatement, List<Subscription> pending) throws SQLException {
+        var updateCounts = preparedStatement.executeBatch();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] != Statement.SUCCESS_NO_INFO) {
+                checkUpdated(updateCounts[i], pending.get(i));
+            }
+        }
+    }
+
+    private void collectRejected(int[] updateCounts, List<Subscription> pending, List<Subscription> rejected) {
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                rejected.add(pending.get(i));
+            }
+        }
+    }
+
+    private void checkUpdated(int updateCount, Subscription entity) {
+        if (updateCount == 0) {
+            throw new OptimisticLockException(String.format(
+                    "Subscription %d with version %d was modified or deleted concurrently", entity.getId(), entity.getVersion()));
+        }
+    }
+
+    private List<Subscription> buildEntities(ResultSet resultSet) throws SQLException {
+        var rowMapper = SubscriptionRowMapper.of(resultSet);
+        List<Subscription> subscriptions = new ArrayList<>();
+        while (resultSet.next()) {
+            subscriptions.add(rowMapper.map());
+        }
+        return subscriptions;
     }
 
     private void prepareStatementToUpsert(PreparedStatement preparedStatement, Subscription entity) throws SQLException {
@@ -152,4 +703,31 @@ public class SubscriptionDao implements Dao<Integer, Subscription> {
         preparedStatement.setObject(4, Timestamp.from(entity.getExpirationDate()));
         preparedStatement.setObject(5, entity.getStatus().name());
     }
+
+    private void prepareStatementToUpdate(PreparedStatement preparedStatement, Subscription entity) throws SQLException {
+        prepareStatementToUpsert(preparedStatement, entity);
+        preparedStatement.setObject(6, entity.getId());
+        preparedStatement.setObject(7, entity.getVersion());
+    }
+
+    private static class ResultSetSpliterator extends Spliterators.AbstractSpliterator<Subscription> {
+        private final ResultSet resultSet;
+        private final SubscriptionRowMapper rowMapper;
+
+        private ResultSetSpliterator(ResultSet resultSet) throws SQLException {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.resultSet = resultSet;
+            this.rowMapper = SubscriptionRowMapper.of(resultSet);
+        }
+
+        @Override
+        @SneakyThrows
+        public boolean tryAdvance(Consumer<? super Subscription> action) {
+            if (!resultSet.next()) {
+                return false;
+            }
+            action.accept(rowMapper.map());
+            return true;
+        }
+    }
 }
@@ -0,0 +1,218 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Subscription;
+import com.dmdev.entity.SubscriptionEvent;
+import com.dmdev.entity.SubscriptionEventType;
+import com.dmdev.metrics.MetricsRegistry;
+import com.dmdev.util.ConnectionManager;
+import com.dmdev.util.PropertiesUtil;
+import lombok.SneakyThrows;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Appends subscription changes to the {@code subscription_event} outbox by copying the current rows, so an event
+ * commits or rolls back together with the write it describes when both run in one transaction.
+ */
+public class SubscriptionEventDao {
+    private static final SubscriptionEventDao INSTANCE = new SubscriptionEventDao();
+    private static final String IN_LIST_CHUNK_SIZE_KEY = "db.in-list-chunk-size";
+    private static final int IN_LIST_CHUNK_SIZE = PropertiesUtil.getInt(IN_LIST_CHUNK_SIZE_KEY, 100);
+
+    private static final String APPEND_SQL = """
+            INSERT INTO subscription_event (type, occurred_at, subscription_id, user_id, name, provider, expiration_date, status, version)
+            SELECT %s, CAST(? AS TIMESTAMP), id, user_id, name, provider, expiration_date, status, version
+            FROM subscription
+            WHERE %s
+            ORDER BY id
+            """;
+    private static final String GIVEN_TYPE = "CAST(? AS VARCHAR(16))";
+    private static final String CREATED_OR_UPDATED_TYPE = "CASE WHEN version = 0 THEN 'CREATED' ELSE 'UPDATED' END";
+    private static final String GET_AFTER_SQL = """
+            SELECT id AS event_id,
+                type,
+                occurred_at,
+                subscription_id AS id,
+                user_id,
+                name,
+                provider,
+                expiration_date,
+                status,
+                version
+            FROM subscription_event
+            WHERE id > ?
+            ORDER BY id
+            LIMIT ?
+            """;
+    private static final String LOCK_SUBSCRIPTION_SQL = "SELECT id FROM subscription WHERE id = ? FOR UPDATE";
+    private static final String DELETE_UP_TO_SQL = "DELETE FROM subscription_event WHERE id <= ?";
+    private static final SubscriptionEventType[] TYPES = SubscriptionEventType.values();
+
+    public static SubscriptionEventDao getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Appends an event of the given type for each existing subscription among the ids.
+     */
+    @SneakyThrows
+    public int appendByIds(Collection<Integer> subscriptionIds, SubscriptionEventType type, Instant occurredAt) {
+        if (subscriptionIds.isEmpty()) {
+            return 0;
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("dao.event.appendByIds");
+             var connection = ConnectionManager.get()) {
+            return appendByIds(connection, new ArrayList<>(subscriptionIds), type, occurredAt);
+        }
+    }
+
+    /**
+     * Appends {@link SubscriptionEventType#CREATED} for subscriptions still at their first version and
+     * {@link SubscriptionEventType#UPDATED} for the rest, as needed after upserts.
+     */
+    public int appendUpsertedByIds(Collection<Integer> subscriptionIds, Instant occurredAt) {
+        return appendByIds(subscriptionIds, null, occurredAt);
+    }
+
+    /**
+     * Same as {@link #appendUpsertedByIds} for subscriptions identified by user id and name, for batched upserts
+     * that do not read generated ids back.
+     */
+    @SneakyThrows
+    public int appendUpsertedByUserIdAndName(Collection<Subscription> subscriptions, Instant occurredAt) {
+        if (subscriptions.isEmpty()) {
+            return 0;
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("dao.event.appendUpsertedByUserIdAndName");
+             var connection = ConnectionManager.get()) {
+            List<Subscription> keys = new ArrayList<>(subscriptions);
+            var chunkSize = Math.min(IN_LIST_CHUNK_SIZE, keys.size());
+            var appended = 0;
+            try (var preparedStatement = connection.prepareStatement(
+                    APPEND_SQL.formatted(CREATED_OR_UPDATED_TYPE, getUserIdAndNameInCondition(chunkSize)))) {
+                for (int from = 0; from < keys.size(); from += chunkSize) {
+                    var index = 1;
+                    preparedStatement.setObject(index++, Timestamp.from(occurredAt));
+                    for (int i = 0; i < chunkSize; i++) {
+                        var key = keys.get(Math.min(from + i, keys.size() - 1));
+                        preparedStatement.setObject(index++, key.getUserId());
+                        preparedStatement.setObject(index++, key.getName());
+                    }
+                    appended += preparedStatement.executeUpdate();
+                }
+            }
+            return appended;
+        }
+    }
+
+    /**
+     * Locks the subscription row until the end of the current transaction and returns whether it exists, so its
+     * snapshot cannot be changed by another transaction before the caller's write.
+     */
+    @SneakyThrows
+    public boolean lockSubscription(Integer subscriptionId) {
+        try (var ignored = MetricsRegistry.get().startTimer("dao.event.lockSubscription");
+             var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(LOCK_SUBSCRIPTION_SQL)) {
+            preparedStatement.setObject(1, subscriptionId);
+
+            return preparedStatement.executeQuery().next();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} events with offsets greater than {@code afterId} in offset order.
+     */
+    @SneakyThrows
+    public List<SubscriptionEvent> findAfter(long afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("dao.event.findAfter");
+             var connection = ConnectionManager.getForRead();
+             var preparedStatement = connection.prepareStatement(GET_AFTER_SQL)) {
+            preparedStatement.setLong(1, afterId);
+            preparedStatement.setInt(2, limit);
+
+            var resultSet = preparedStatement.executeQuery();
+            var rowMapper = SubscriptionRowMapper.of(resultSet);
+            var eventIdIndex = resultSet.findColumn("event_id");
+            var typeIndex = resultSet.findColumn("type");
+            var occurredAtIndex = resultSet.findColumn("occurred_at");
+            List<SubscriptionEvent> events = new ArrayList<>();
+            while (resultSet.next()) {
+                events.add(new SubscriptionEvent(
+                        resultSet.getLong(eventIdIndex),
+                        toType(resultSet.getString(typeIndex)),
+                        resultSet.getTimestamp(occurredAtIndex).toInstant(),
+                        rowMapper.map()));
+            }
+            MetricsRegistry.get().recordValue("dao.event.findAfter.rows", events.size());
+            return events;
+        }
+    }
+
+    /**
+     * Removes events every consumer has already read.
+     */
+    @SneakyThrows
+    public int deleteUpTo(long id) {
+        try (var ignored = MetricsRegistry.get().startTimer("dao.event.deleteUpTo");
+             var connection = ConnectionManager.get();
+             var preparedStatement = connection.prepareStatement(DELETE_UP_TO_SQL)) {
+            preparedStatement.setLong(1, id);
+
+            return preparedStatement.executeUpdate();
+        }
+    }
+
+    private int appendByIds(Connection connection, List<Integer> ids, SubscriptionEventType type,
+                            Instant occurredAt) throws SQLException {
+        var chunkSize = Math.min(IN_LIST_CHUNK_SIZE, ids.size());
+        var appended = 0;
+        try (var preparedStatement = connection.prepareStatement(
+                APPEND_SQL.formatted(type == null ? CREATED_OR_UPDATED_TYPE : GIVEN_TYPE, getIdInCondition(chunkSize)))) {
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                var index = 1;
+                if (type != null) {
+                    preparedStatement.setObject(index++, type.name());
+                }
+                preparedStatement.setObject(index++, Timestamp.from(occurredAt));
+                for (int i = 0; i < chunkSize; i++) {
+                    preparedStatement.setObject(index++, ids.get(Math.min(from + i, ids.size() - 1)));
+                }
+                appended += preparedStatement.executeUpdate();
+            }
+        }
+        return appended;
+    }
+
+    private static String getIdInCondition(int parameterCount) {
+        return "id IN " + Stream.generate(() -> "?")
+                .limit(parameterCount)
+                .collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private static String getUserIdAndNameInCondition(int parameterCount) {
+        return "(user_id, name) IN " + Stream.generate(() -> "(?, ?)")
+                .limit(parameterCount)
+                .collect(Collectors.joining(", ", "(", ")"));
+    }
+
+    private static SubscriptionEventType toType(String name) {
+        for (var type : TYPES) {
+            if (type.name().equals(name)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + SubscriptionEventType.class.getCanonicalName() + "." + name);
+    }
+}
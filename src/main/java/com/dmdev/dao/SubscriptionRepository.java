@@ -0,0 +1,62 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.util.TransactionRunner;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Subscription storage as seen by the services. Implemented by the JDBC {@link SubscriptionDao}, the in-memory DAO
+ * and the decorators wrapping another repository.
+ */
+public interface SubscriptionRepository extends Dao<Integer, Subscription> {
+    /**
+     * How {@link com.dmdev.service.SubscriptionService#inTransaction} groups calls to this repository.
+     */
+    TransactionRunner getTransactionRunner();
+
+    Stream<Subscription> streamAll();
+
+    void forEach(Consumer<? super Subscription> action);
+
+    List<Subscription> findByUserId(Integer userId);
+
+    Map<Integer, List<Subscription>> findByUserIds(Collection<Integer> userIds);
+
+    List<Subscription> findActiveExpiringBefore(Instant expiringBefore);
+
+    Page<Integer, Subscription> findPage(Integer afterId, int limit);
+
+    Page<Integer, Subscription> findByUserIdPage(Integer userId, Integer afterId, int limit);
+
+    boolean transitionStatus(Integer id, Set<Status> expectedStatuses, Status newStatus, Instant newExpirationDate);
+
+    /**
+     * Expires the subscription only if it is still active and its expiration date is not after {@code dueAt}, so a
+     * renewal that raced with the caller is kept.
+     */
+    boolean expireIfDue(Integer id, Instant dueAt, Instant expiredAt);
+
+    Subscription upsertByUserIdAndName(Subscription entity);
+
+    /**
+     * Whether concurrent {@link #upsertByUserIdAndName} calls for the same new (userId, name) are resolved by the
+     * store itself. H2's MERGE is not: the losing insert fails with a unique violation.
+     */
+    boolean isUpsertAtomic();
+
+    /**
+     * Upserts in batches within one transaction and returns the entities rejected because
+     * the subscription already exists with another provider. Generated ids are not read back.
+     */
+    List<Subscription> upsertAllByUserIdAndName(Collection<Subscription> entities);
+
+    List<Integer> expireDueBefore(Instant dueBefore, Instant expiredAt, int limit);
+}
@@ -0,0 +1,66 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+final class SubscriptionRowMapper {
+    private static final Provider[] PROVIDERS = Provider.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private final ResultSet resultSet;
+    private final int idIndex;
+    private final int userIdIndex;
+    private final int nameIndex;
+    private final int providerIndex;
+    private final int expirationDateIndex;
+    private final int statusIndex;
+    private final int versionIndex;
+
+    private SubscriptionRowMapper(ResultSet resultSet) throws SQLException {
+        this.resultSet = resultSet;
+        this.idIndex = resultSet.findColumn("id");
+        this.userIdIndex = resultSet.findColumn("user_id");
+        this.nameIndex = resultSet.findColumn("name");
+        this.providerIndex = resultSet.findColumn("provider");
+        this.expirationDateIndex = resultSet.findColumn("expiration_date");
+        this.statusIndex = resultSet.findColumn("status");
+        this.versionIndex = resultSet.findColumn("version");
+    }
+
+    static SubscriptionRowMapper of(ResultSet resultSet) throws SQLException {
+        return new SubscriptionRowMapper(resultSet);
+    }
+
+    Subscription map() throws SQLException {
+        return new Subscription(
+                resultSet.getInt(idIndex),
+                resultSet.getInt(userIdIndex),
+                resultSet.getString(nameIndex),
+                toProvider(resultSet.getString(providerIndex)),
+                resultSet.getTimestamp(expirationDateIndex).toInstant(),
+                toStatus(resultSet.getString(statusIndex)),
+                resultSet.getInt(versionIndex));
+    }
+
+    private static Provider toProvider(String name) {
+        for (var provider : PROVIDERS) {
+            if (provider.name().equals(name)) {
+                return provider;
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + Provider.class.getCanonicalName() + "." + name);
+    }
+
+    private static Status toStatus(String name) {
+        for (var status : STATUSES) {
+            if (status.name().equals(name)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + Status.class.getCanonicalName() + "." + name);
+    }
+}
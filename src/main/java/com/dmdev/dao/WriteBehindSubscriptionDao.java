@@ -0,0 +1,386 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.metrics.MetricsRegistry;
+import com.dmdev.util.PropertiesUtil;
+import com.dmdev.util.TransactionManager;
+import com.dmdev.util.TransactionRunner;
+import com.dmdev.util.ShutdownSequence;
+import lombok.SneakyThrows;
+import lombok.extern.java.Log;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.stream.Stream;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Buffers {@link #upsertByUserIdAndName} calls, keeps only the latest state per (userId, name) and writes
+ * them through {@link SubscriptionRepository#upsertAllByUserIdAndName} when the buffer reaches the flush size or the flush
+ * interval elapses. An upsert of another provider than the one buffered for its (userId, name) is rejected right
+ * away. Buffered upserts are returned without id and version. Other writes flush the buffer first,
+ * reads go straight to the delegate and may not see buffered upserts yet. Flushes always run on the flusher thread,
+ * callers wait for them, so a batch never joins a transaction bound to the caller. Inside such a transaction every
+ * write, upserts included, goes straight to the delegate on the caller's connection without flushing, and upserts
+ * buffered outside of it are written on the next flush. The final flush is part of the {@link ShutdownSequence} and
+ * runs before the connection pool closes.
+ */
+@Log
+public class WriteBehindSubscriptionDao implements SubscriptionRepository, AutoCloseable {
+    private static final String MAX_PENDING_KEY = "subscription.write-behind.max-pending";
+    private static final String FLUSH_SIZE_KEY = "subscription.write-behind.flush-size";
+    private static final String FLUSH_INTERVAL_KEY = "subscription.write-behind.flush-interval-ms";
+
+    private final SubscriptionRepository delegate;
+    private final int maxPending;
+    private final int flushSize;
+    private final ScheduledExecutorService flusher;
+    private final ShutdownSequence shutdownSequence;
+    private final Runnable shutdownAction = this::close;
+    private volatile Thread flusherThread;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private Map<Key, Subscription> pending = new LinkedHashMap<>();
+    private Map<Key, Subscription> inFlight = Map.of();
+    private boolean closed;
+
+    public WriteBehindSubscriptionDao(SubscriptionRepository delegate, int maxPending, int flushSize, Duration flushInterval) {
+        this(delegate, maxPending, flushSize, flushInterval, ShutdownSequence.getInstance());
+    }
+
+    public WriteBehindSubscriptionDao(SubscriptionRepository delegate, int maxPending, int flushSize, Duration flushInterval,
+                                      ShutdownSequence shutdownSequence) {
+        if (flushSize < 1 || maxPending < flushSize) {
+            throw new IllegalArgumentException("Invalid write-behind sizes: flushSize=%d, maxPending=%d"
+                    .formatted(flushSize, maxPending));
+        }
+        this.delegate = delegate;
+        this.maxPending = maxPending;
+        this.flushSize = flushSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "subscription-write-behind");
+            thread.setDaemon(true);
+            flusherThread = thread;
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(), MILLISECONDS);
+        this.shutdownSequence = shutdownSequence;
+        shutdownSequence.register(shutdownAction);
+    }
+
+    public static WriteBehindSubscriptionDao fromProperties(SubscriptionRepository delegate) {
+        return new WriteBehindSubscriptionDao(
+                delegate,
+                PropertiesUtil.getInt(MAX_PENDING_KEY, 10_000),
+                PropertiesUtil.getInt(FLUSH_SIZE_KEY, 500),
+                Duration.ofMillis(PropertiesUtil.getLong(FLUSH_INTERVAL_KEY, 1000)));
+    }
+
+    @Override
+    @SneakyThrows
+    public Subscription upsertByUserIdAndName(Subscription entity) {
+        if (TransactionManager.isActive()) {
+            return delegate.upsertByUserIdAndName(entity);
+        }
+        if (!enqueue(List.of(entity)).isEmpty()) {
+            throw new SQLIntegrityConstraintViolationException(String.format(
+                    "Subscription %s of user %d already exists with another provider", entity.getName(), entity.getUserId()));
+        }
+        return entity;
+    }
+
+    @Override
+    public boolean isUpsertAtomic() {
+        return delegate.isUpsertAtomic();
+    }
+
+    @Override
+    public List<Subscription> upsertAllByUserIdAndName(Collection<Subscription> entities) {
+        if (TransactionManager.isActive()) {
+            return delegate.upsertAllByUserIdAndName(entities);
+        }
+        return enqueue(entities);
+    }
+
+    /**
+     * Writes every buffered upsert on the flusher thread, waits for it and returns the ones rejected because the
+     * subscription exists with another provider.
+     */
+    @SneakyThrows
+    public List<Subscription> flush() {
+        if (Thread.currentThread() == flusherThread) {
+            return flushNow();
+        }
+        Future<List<Subscription>> flushed;
+        try {
+            flushed = flusher.submit(this::flushNow);
+        } catch (RejectedExecutionException e) {
+            if (getPendingCount() == 0) {
+                return List.of();
+            }
+            throw new IllegalStateException("Write-behind buffer is closed with %d pending upserts".formatted(getPendingCount()), e);
+        }
+        try {
+            return flushed.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    private List<Subscription> flushNow() {
+        flushLock.lock();
+        try {
+            Map<Key, Subscription> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return List.of();
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new LinkedHashMap<>();
+            }
+            try {
+                var rejected = delegate.upsertAllByUserIdAndName(batch.values());
+                MetricsRegistry.get().recordValue("dao.writeBehind.flushed", batch.size());
+                if (!rejected.isEmpty()) {
+                    MetricsRegistry.get().recordValue("dao.writeBehind.rejected", rejected.size());
+                    log.warning(() -> "Write-behind rejected %d upserts with a conflicting provider".formatted(rejected.size()));
+                }
+                return rejected;
+            } catch (RuntimeException e) {
+                requeue(batch);
+                throw e;
+            } finally {
+                synchronized (this) {
+                    inFlight = Map.of();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Rejects new upserts and writes the buffered ones; runs at most once.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        shutdownSequence.unregister(shutdownAction);
+        try {
+            flush();
+        } finally {
+            flusher.shutdown();
+        }
+    }
+
+    @Override
+    public TransactionRunner getTransactionRunner() {
+        return delegate.getTransactionRunner();
+    }
+
+    @Override
+    public Optional<Subscription> findById(Integer id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Subscription> findByUserId(Integer userId) {
+        return delegate.findByUserId(userId);
+    }
+
+    @Override
+    public List<Subscription> findActiveExpiringBefore(Instant expiringBefore) {
+        return delegate.findActiveExpiringBefore(expiringBefore);
+    }
+
+    @Override
+    public Map<Integer, List<Subscription>> findByUserIds(Collection<Integer> userIds) {
+        return delegate.findByUserIds(userIds);
+    }
+
+    @Override
+    public List<Subscription> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Subscription> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public void forEach(Consumer<? super Subscription> action) {
+        delegate.forEach(action);
+    }
+
+    @Override
+    public Page<Integer, Subscription> findPage(Integer afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Page<Integer, Subscription> findByUserIdPage(Integer userId, Integer afterId, int limit) {
+        return delegate.findByUserIdPage(userId, afterId, limit);
+    }
+
+    @Override
+    public boolean delete(Integer id) {
+        flushOutsideTransaction();
+        return delegate.delete(id);
+    }
+
+    @Override
+    public boolean transitionStatus(Integer id, Set<Status> expectedStatuses, Status newStatus, Instant newExpirationDate) {
+        flushOutsideTransaction();
+        return delegate.transitionStatus(id, expectedStatuses, newStatus, newExpirationDate);
+    }
+
+    @Override
+    public boolean expireIfDue(Integer id, Instant dueAt, Instant expiredAt) {
+        flushOutsideTransaction();
+        return delegate.expireIfDue(id, dueAt, expiredAt);
+    }
+
+    @Override
+    public Subscription update(Subscription entity) {
+        flushOutsideTransaction();
+        return delegate.update(entity);
+    }
+
+    @Override
+    public Subscription insert(Subscription entity) {
+        flushOutsideTransaction();
+        return delegate.insert(entity);
+    }
+
+    @Override
+    public List<Subscription> insertAll(Collection<Subscription> entities) {
+        flushOutsideTransaction();
+        return delegate.insertAll(entities);
+    }
+
+    @Override
+    public List<Subscription> updateAll(Collection<Subscription> entities) {
+        flushOutsideTransaction();
+        return delegate.updateAll(entities);
+    }
+
+    @Override
+    public List<Subscription> upsertAll(Collection<Subscription> entities) {
+        flushOutsideTransaction();
+        return delegate.upsertAll(entities);
+    }
+
+    @Override
+    public List<Integer> expireDueBefore(Instant dueBefore, Instant expiredAt, int limit) {
+        flushOutsideTransaction();
+        return delegate.expireDueBefore(dueBefore, expiredAt, limit);
+    }
+
+    /**
+     * The flusher writes on its own connection, so inside a transaction bound to the caller it could wait on row
+     * locks of that transaction while the caller waits on the flusher.
+     */
+    private void flushOutsideTransaction() {
+        if (!TransactionManager.isActive()) {
+            flush();
+        }
+    }
+
+    /**
+     * Buffers the entities and returns the ones rejected because an upsert of the same user id and name with
+     * another provider is buffered or being flushed. Conflicts with stored subscriptions are found by the flush.
+     */
+    private List<Subscription> enqueue(Collection<Subscription> entities) {
+        List<Subscription> rejected = new ArrayList<>();
+        for (var entity : entities) {
+            var key = Key.of(entity);
+            Offer offer;
+            while ((offer = offer(key, entity)) == Offer.FULL) {
+                flush();
+            }
+            if (offer == Offer.CONFLICT) {
+                rejected.add(entity);
+            }
+        }
+        if (!rejected.isEmpty()) {
+            MetricsRegistry.get().recordValue("dao.writeBehind.rejected", rejected.size());
+        }
+        if (getPendingCount() >= flushSize) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                log.fine("Write-behind buffer was closed, its final flush writes the pending upserts");
+            }
+        }
+        return rejected;
+    }
+
+    private synchronized Offer offer(Key key, Subscription entity) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind buffer is closed");
+        }
+        var buffered = pending.containsKey(key) ? pending.get(key) : inFlight.get(key);
+        if (buffered != null && buffered.getProvider() != entity.getProvider()) {
+            return Offer.CONFLICT;
+        }
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            return Offer.FULL;
+        }
+        if (pending.put(key, entity) != null) {
+            MetricsRegistry.get().increment("dao.writeBehind.coalesced");
+        }
+        return Offer.ACCEPTED;
+    }
+
+    private synchronized void requeue(Map<Key, Subscription> batch) {
+        var merged = new LinkedHashMap<>(batch);
+        merged.putAll(pending);
+        pending = merged;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Write-behind flush failed, pending upserts are kept for the next attempt", e);
+        }
+    }
+
+    private enum Offer {
+        ACCEPTED, FULL, CONFLICT
+    }
+
+    private record Key(Integer userId, String name) {
+        private static Key of(Subscription subscription) {
+            return new Key(subscription.getUserId(), subscription.getName());
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package com.dmdev.entity;
 
-import java.util.Arrays;
 import java.util.Optional;
 
 public enum Provider {
     GOOGLE, APPLE;
 
+    private static final Provider[] VALUES = values();
+
     public static Provider findByName(String name) {
         return findByNameOpt(name).orElseThrow();
     }
     public static Optional<Provider> findByNameOpt(String name) {
-        return Arrays.stream(values())
-                .filter(provider -> provider.name().equalsIgnoreCase(name))
-                .findFirst();
+        return Optional.ofNullable(findByNameOrNull(name));
+    }
+
+    public static Provider findByNameOrNull(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (var provider : VALUES) {
+            if (provider.name().equalsIgnoreCase(name)) {
+                return provider;
+            }
+        }
+        return null;
     }
 }
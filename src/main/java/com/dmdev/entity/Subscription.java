@@ -20,5 +20,6 @@ public class Subscription implements BaseEntity<Integer> {
     private Provider provider;
     private Instant expirationDate;
     private Status status;
+    private Integer version;
 
 }
@@ -0,0 +1,23 @@
+package com.dmdev.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A change of one subscription with the row as it was right after the change, or right before it for
+ * {@link SubscriptionEventType#DELETED}. The id is the offset of the event in the stream.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SubscriptionEvent implements BaseEntity<Long> {
+    private Long id;
+    private SubscriptionEventType type;
+    private Instant occurredAt;
+    private Subscription subscription;
+}
@@ -0,0 +1,5 @@
+package com.dmdev.entity;
+
+public enum SubscriptionEventType {
+    CREATED, UPDATED, DELETED, CANCELED, EXPIRED
+}
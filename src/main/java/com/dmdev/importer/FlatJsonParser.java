@@ -0,0 +1,153 @@
+package com.dmdev.importer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Parses one JSON object into its top-level scalar members as text. Nested objects and arrays are skipped,
+ * JSON null becomes a null value. Malformed input fails with {@link IllegalArgumentException}.
+ */
+class FlatJsonParser {
+    private final String json;
+    private int position;
+
+    private FlatJsonParser(String json) {
+        this.json = json;
+    }
+
+    static Map<String, String> parse(String json) {
+        var parser = new FlatJsonParser(json);
+        var members = parser.parseObject();
+        parser.skipWhitespace();
+        if (parser.position != json.length()) {
+            throw parser.malformed("trailing characters");
+        }
+        return members;
+    }
+
+    private Map<String, String> parseObject() {
+        Map<String, String> members = new HashMap<>();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return members;
+        }
+        while (true) {
+            skipWhitespace();
+            var name = parseString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            switch (peek()) {
+                case '{', '[' -> skipNested();
+                case '"' -> members.put(name, parseString());
+                default -> members.put(name, parseLiteral());
+            }
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return members;
+            }
+            expect(',');
+        }
+    }
+
+    private String parseString() {
+        expect('"');
+        StringBuilder value = null;
+        var start = position;
+        while (true) {
+            var current = next();
+            if (current == '"') {
+                return value == null ? json.substring(start, position - 1) : value.toString();
+            }
+            if (current == '\\') {
+                if (value == null) {
+                    value = new StringBuilder(json.substring(start, position - 1));
+                }
+                value.append(unescape(next()));
+            } else if (value != null) {
+                value.append(current);
+            }
+        }
+    }
+
+    private char unescape(char escaped) {
+        return switch (escaped) {
+            case '"', '\\', '/' -> escaped;
+            case 'b' -> '\b';
+            case 'f' -> '\f';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 't' -> '\t';
+            case 'u' -> {
+                if (position + 4 > json.length()) {
+                    throw malformed("truncated unicode escape");
+                }
+                var code = Integer.parseInt(json, position, position + 4, 16);
+                position += 4;
+                yield (char) code;
+            }
+            default -> throw malformed("invalid escape");
+        };
+    }
+
+    private String parseLiteral() {
+        var start = position;
+        while (position < json.length() && ",}] \t\r\n".indexOf(json.charAt(position)) < 0) {
+            position++;
+        }
+        var literal = json.substring(start, position);
+        if (literal.isEmpty()) {
+            throw malformed("missing value");
+        }
+        return "null".equals(literal) ? null : literal;
+    }
+
+    private void skipNested() {
+        var depth = 0;
+        do {
+            var current = peek();
+            if (current == '"') {
+                parseString();
+                continue;
+            }
+            position++;
+            if (current == '{' || current == '[') {
+                depth++;
+            } else if (current == '}' || current == ']') {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() {
+        if (position >= json.length()) {
+            throw malformed("unexpected end");
+        }
+        return json.charAt(position);
+    }
+
+    private char next() {
+        var current = peek();
+        position++;
+        return current;
+    }
+
+    private void expect(char expected) {
+        if (next() != expected) {
+            throw malformed("expected '" + expected + "'");
+        }
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed JSON at %d: %s".formatted(position, reason));
+    }
+}
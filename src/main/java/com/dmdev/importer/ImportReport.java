@@ -0,0 +1,18 @@
+package com.dmdev.importer;
+
+import lombok.Value;
+
+import java.time.Duration;
+
+@Value(staticConstructor = "of")
+public class ImportReport {
+    long totalRows;
+    long importedRows;
+    long rejectedRows;
+    Duration elapsed;
+
+    public double getRowsPerSecond() {
+        var nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : totalRows * 1_000_000_000.0 / nanos;
+    }
+}
@@ -0,0 +1,42 @@
+package com.dmdev.importer;
+
+import com.dmdev.util.PropertiesUtil;
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class ImportSettings {
+    private static final String BATCH_SIZE_KEY = "import.batch-size";
+    private static final String WORKER_THREADS_KEY = "import.worker-threads";
+    private static final String QUEUE_CAPACITY_KEY = "import.queue-capacity";
+
+    /**
+     * Rows handed between stages at once and written with one batched upsert.
+     */
+    @Builder.Default
+    int batchSize = 1000;
+    /**
+     * Threads parsing, validating and mapping batches, zero uses one per available processor.
+     */
+    @Builder.Default
+    int workerThreads = 0;
+    /**
+     * Batches each queue between stages holds before the producing stage blocks.
+     */
+    @Builder.Default
+    int queueCapacity = 16;
+
+    public static ImportSettings fromProperties() {
+        var defaults = ImportSettings.builder().build();
+        return ImportSettings.builder()
+                .batchSize(PropertiesUtil.getInt(BATCH_SIZE_KEY, defaults.getBatchSize()))
+                .workerThreads(PropertiesUtil.getInt(WORKER_THREADS_KEY, defaults.getWorkerThreads()))
+                .queueCapacity(PropertiesUtil.getInt(QUEUE_CAPACITY_KEY, defaults.getQueueCapacity()))
+                .build();
+    }
+
+    int getEffectiveWorkerThreads() {
+        return workerThreads > 0 ? workerThreads : Runtime.getRuntime().availableProcessors();
+    }
+}
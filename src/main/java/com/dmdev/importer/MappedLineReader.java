@@ -0,0 +1,88 @@
+package com.dmdev.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads UTF-8 lines of a file through memory-mapped windows, so files larger than one mapping are supported and
+ * lines may span window boundaries. Accepts both LF and CRLF line endings and skips a leading byte order mark.
+ */
+public class MappedLineReader implements Closeable {
+    private static final long DEFAULT_WINDOW_SIZE = 64L << 20;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private byte[] lineBuffer = new byte[256];
+
+    public MappedLineReader(Path path) throws IOException {
+        this(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedLineReader(Path path, long windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.windowSize = windowSize;
+        if (size > 0) {
+            map(0);
+            skipByteOrderMark();
+        }
+    }
+
+    /**
+     * Returns the next line without its terminator, or null at the end of the file.
+     */
+    public String readLine() throws IOException {
+        if (window == null || isAtEnd()) {
+            return null;
+        }
+        var length = 0;
+        while (!isAtEnd()) {
+            if (!window.hasRemaining()) {
+                map(windowStart + window.limit());
+            }
+            var value = window.get();
+            if (value == '\n') {
+                break;
+            }
+            if (length == lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, length * 2);
+            }
+            lineBuffer[length++] = value;
+        }
+        if (length > 0 && lineBuffer[length - 1] == '\r') {
+            length--;
+        }
+        return new String(lineBuffer, 0, length, UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+
+    private boolean isAtEnd() {
+        return windowStart + window.position() >= size;
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(windowSize, size - position));
+    }
+
+    private void skipByteOrderMark() {
+        if (size >= 3 && (window.get(0) & 0xFF) == 0xEF && (window.get(1) & 0xFF) == 0xBB && (window.get(2) & 0xFF) == 0xBF) {
+            window.position(3);
+        }
+    }
+}
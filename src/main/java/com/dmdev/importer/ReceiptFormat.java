@@ -0,0 +1,110 @@
+package com.dmdev.importer;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Line-oriented receipt exports. Rows that cannot be parsed fail with {@link IllegalArgumentException}; missing
+ * or blank fields are left for the validator.
+ */
+public enum ReceiptFormat {
+    /**
+     * {@code userId,name,provider,expirationDate} with an optional header row and RFC 4180 quoting.
+     */
+    CSV {
+        @Override
+        public boolean isHeader(String line) {
+            return line.regionMatches(true, 0, "userId", 0, "userId".length());
+        }
+
+        @Override
+        public CreateSubscriptionDto parse(String line) {
+            var fields = splitCsv(line);
+            if (fields.size() != 4) {
+                throw new IllegalArgumentException("Expected 4 fields but found " + fields.size());
+            }
+            return toDto(fields.get(0), fields.get(1), fields.get(2), fields.get(3));
+        }
+    },
+    /**
+     * One JSON object per line with {@code userId}, {@code name}, {@code provider} and {@code expirationDate}.
+     */
+    JSON_LINES {
+        @Override
+        public CreateSubscriptionDto parse(String line) {
+            var members = FlatJsonParser.parse(line);
+            return toDto(members.get("userId"), members.get("name"), members.get("provider"), members.get("expirationDate"));
+        }
+    };
+
+    public abstract CreateSubscriptionDto parse(String line);
+
+    public boolean isHeader(String line) {
+        return false;
+    }
+
+    public static ReceiptFormat of(Path path) {
+        var fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (fileName.endsWith(".csv")) {
+            return CSV;
+        }
+        if (fileName.endsWith(".jsonl") || fileName.endsWith(".ndjson") || fileName.endsWith(".json")) {
+            return JSON_LINES;
+        }
+        throw new IllegalArgumentException("Unsupported receipt file: " + path);
+    }
+
+    private static CreateSubscriptionDto toDto(String userId, String name, String provider, String expirationDate) {
+        try {
+            return CreateSubscriptionDto.builder()
+                    .userId(isBlank(userId) ? null : Integer.valueOf(userId.trim()))
+                    .name(name)
+                    .provider(isBlank(provider) ? null : provider.trim())
+                    .expirationDate(isBlank(expirationDate) ? null : Instant.parse(expirationDate.trim()))
+                    .build();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid expirationDate: " + expirationDate, e);
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(4);
+        var field = new StringBuilder();
+        var quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            var current = line.charAt(i);
+            if (quoted) {
+                if (current != '"') {
+                    field.append(current);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (current == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (current == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(current);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
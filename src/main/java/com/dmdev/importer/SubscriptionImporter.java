@@ -0,0 +1,253 @@
+package com.dmdev.importer;
+
+import com.dmdev.dao.SubscriptionRepository;
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Subscription;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.metrics.MetricsRegistry;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import com.dmdev.validator.Error;
+import lombok.SneakyThrows;
+import lombok.extern.java.Log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Imports receipt files through three stages connected by bounded queues: one thread reads memory-mapped lines,
+ * worker threads parse, validate and map them, and the calling thread writes each batch with one batched upsert in
+ * file order, so the last row wins for repeated subscriptions. Rejected rows are written to the error file as
+ * {@code lineNumber<TAB>codes<TAB>row}.
+ */
+@Log
+public class SubscriptionImporter {
+    private static final Error MALFORMED_ROW = Error.of(200, "row is malformed");
+    private static final Error CONFLICTING_PROVIDER = Error.of(201, "subscription exists with another provider");
+    private static final LineBatch END_OF_LINES = new LineBatch(-1, 0, List.of());
+    private static final WriteBatch END_OF_WRITES = new WriteBatch(-1, List.of(), List.of(), List.of());
+    private static final long FAILURE_CHECK_INTERVAL_MILLIS = 100;
+
+    private final SubscriptionRepository subscriptionDao;
+    private final CreateSubscriptionMapper createSubscriptionMapper;
+    private final CreateSubscriptionValidator createSubscriptionValidator;
+    private final ImportSettings settings;
+
+    public SubscriptionImporter(SubscriptionRepository subscriptionDao,
+                                CreateSubscriptionMapper createSubscriptionMapper,
+                                CreateSubscriptionValidator createSubscriptionValidator,
+                                ImportSettings settings) {
+        if (settings.getBatchSize() < 1 || settings.getQueueCapacity() < 1) {
+            throw new IllegalArgumentException("Invalid import settings: " + settings);
+        }
+        this.subscriptionDao = subscriptionDao;
+        this.createSubscriptionMapper = createSubscriptionMapper;
+        this.createSubscriptionValidator = createSubscriptionValidator;
+        this.settings = settings;
+    }
+
+    public ImportReport importFile(Path source, Path errorFile) {
+        return importFile(source, ReceiptFormat.of(source), errorFile);
+    }
+
+    @SneakyThrows
+    public ImportReport importFile(Path source, ReceiptFormat format, Path errorFile) {
+        var workers = settings.getEffectiveWorkerThreads();
+        BlockingQueue<LineBatch> lineBatches = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        BlockingQueue<WriteBatch> writeBatches = new ArrayBlockingQueue<>(settings.getQueueCapacity());
+        var threadNumber = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(workers + 1, runnable -> {
+            var thread = new Thread(runnable, "subscription-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        var startedAt = System.nanoTime();
+        try (var ignored = MetricsRegistry.get().startTimer("import.importFile");
+             var errors = Files.newBufferedWriter(errorFile)) {
+            List<Future<?>> stages = new ArrayList<>(workers + 1);
+            stages.add(executor.submit(() -> read(source, lineBatches, workers)));
+            for (int i = 0; i < workers; i++) {
+                stages.add(executor.submit(() -> transform(format, lineBatches, writeBatches)));
+            }
+            var counts = write(writeBatches, workers, errors, stages);
+            for (var stage : stages) {
+                stage.get();
+            }
+
+            var report = ImportReport.of(counts[0] + counts[1], counts[0], counts[1], Duration.ofNanos(System.nanoTime() - startedAt));
+            MetricsRegistry.get().recordValue("import.rows", report.getTotalRows());
+            MetricsRegistry.get().recordValue("import.rejected", report.getRejectedRows());
+            log.info(() -> "Imported %d of %d rows from %s in %d ms (%.0f rows/s), %d rejected".formatted(
+                    report.getImportedRows(), report.getTotalRows(), source, report.getElapsed().toMillis(),
+                    report.getRowsPerSecond(), report.getRejectedRows()));
+            return report;
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Void read(Path source, BlockingQueue<LineBatch> lineBatches, int workers) throws IOException, InterruptedException {
+        try (var reader = new MappedLineReader(source)) {
+            var batchSize = settings.getBatchSize();
+            var sequence = 0L;
+            var firstLineNumber = 1L;
+            List<String> lines = new ArrayList<>(batchSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                if (lines.size() == batchSize) {
+                    lineBatches.put(new LineBatch(sequence++, firstLineNumber, lines));
+                    firstLineNumber += batchSize;
+                    lines = new ArrayList<>(batchSize);
+                }
+            }
+            if (!lines.isEmpty()) {
+                lineBatches.put(new LineBatch(sequence, firstLineNumber, lines));
+            }
+        } finally {
+            for (int i = 0; i < workers; i++) {
+                lineBatches.put(END_OF_LINES);
+            }
+        }
+        return null;
+    }
+
+    private Void transform(ReceiptFormat format, BlockingQueue<LineBatch> lineBatches,
+                           BlockingQueue<WriteBatch> writeBatches) throws InterruptedException {
+        try {
+            LineBatch batch;
+            while ((batch = lineBatches.take()) != END_OF_LINES) {
+                writeBatches.put(transform(format, batch));
+            }
+        } finally {
+            writeBatches.put(END_OF_WRITES);
+        }
+        return null;
+    }
+
+    private WriteBatch transform(ReceiptFormat format, LineBatch batch) {
+        List<CreateSubscriptionDto> dtos = new ArrayList<>(batch.lines().size());
+        List<Row> parsedRows = new ArrayList<>(batch.lines().size());
+        List<Rejection> rejections = new ArrayList<>();
+        for (int i = 0; i < batch.lines().size(); i++) {
+            var row = new Row(batch.firstLineNumber() + i, batch.lines().get(i));
+            if (row.line().isBlank() || row.lineNumber() == 1 && format.isHeader(row.line())) {
+                continue;
+            }
+            try {
+                dtos.add(format.parse(row.line()));
+                parsedRows.add(row);
+            } catch (IllegalArgumentException e) {
+                rejections.add(new Rejection(row, List.of(MALFORMED_ROW)));
+            }
+        }
+
+        var validationResult = createSubscriptionValidator.validateAll(dtos);
+        List<Subscription> subscriptions = new ArrayList<>(dtos.size() - validationResult.getInvalidCount());
+        List<Row> subscriptionRows = new ArrayList<>(subscriptions.size());
+        for (int i = 0; i < dtos.size(); i++) {
+            var errors = validationResult.getErrors(i);
+            if (errors.isEmpty()) {
+                subscriptions.add(createSubscriptionMapper.map(dtos.get(i)));
+                subscriptionRows.add(parsedRows.get(i));
+            } else {
+                rejections.add(new Rejection(parsedRows.get(i), errors));
+            }
+        }
+        return new WriteBatch(batch.sequence(), subscriptions, subscriptionRows, rejections);
+    }
+
+    private long[] write(BlockingQueue<WriteBatch> writeBatches, int workers, BufferedWriter errors,
+                         List<Future<?>> stages) throws Exception {
+        long imported = 0;
+        long rejected = 0;
+        var finishedWorkers = 0;
+        var nextSequence = 0L;
+        Map<Long, WriteBatch> outOfOrder = new HashMap<>();
+        while (finishedWorkers < workers) {
+            var batch = writeBatches.poll(FAILURE_CHECK_INTERVAL_MILLIS, MILLISECONDS);
+            if (batch == null) {
+                checkFailed(stages);
+                continue;
+            }
+            if (batch == END_OF_WRITES) {
+                finishedWorkers++;
+                continue;
+            }
+            outOfOrder.put(batch.sequence(), batch);
+            while ((batch = outOfOrder.remove(nextSequence)) != null) {
+                nextSequence++;
+                var conflicting = write(batch, errors);
+                imported += batch.subscriptions().size() - conflicting;
+                rejected += batch.rejections().size() + conflicting;
+            }
+        }
+        return new long[]{imported, rejected};
+    }
+
+    private int write(WriteBatch batch, BufferedWriter errors) throws IOException {
+        var conflicting = subscriptionDao.upsertAllByUserIdAndName(batch.subscriptions());
+        if (!conflicting.isEmpty()) {
+            IdentityHashMap<Subscription, Row> rows = new IdentityHashMap<>(batch.subscriptions().size());
+            for (int i = 0; i < batch.subscriptions().size(); i++) {
+                rows.put(batch.subscriptions().get(i), batch.rows().get(i));
+            }
+            for (var subscription : conflicting) {
+                writeRejection(errors, new Rejection(rows.get(subscription), List.of(CONFLICTING_PROVIDER)));
+            }
+        }
+        for (var rejection : batch.rejections()) {
+            writeRejection(errors, rejection);
+        }
+        return conflicting.size();
+    }
+
+    private void checkFailed(List<Future<?>> stages) throws ExecutionException, InterruptedException {
+        for (var stage : stages) {
+            if (stage.isDone()) {
+                stage.get();
+            }
+        }
+    }
+
+    private void writeRejection(BufferedWriter errors, Rejection rejection) throws IOException {
+        errors.write(Long.toString(rejection.row().lineNumber()));
+        errors.write('\t');
+        errors.write(rejection.errors().stream()
+                .map(error -> error.getCode().toString())
+                .collect(joining(",")));
+        errors.write('\t');
+        errors.write(rejection.row().line());
+        errors.newLine();
+    }
+
+    private record LineBatch(long sequence, long firstLineNumber, List<String> lines) {
+    }
+
+    private record Row(long lineNumber, String line) {
+    }
+
+    private record Rejection(Row row, List<Error> errors) {
+    }
+
+    private record WriteBatch(long sequence, List<Subscription> subscriptions, List<Row> rows, List<Rejection> rejections) {
+    }
+}
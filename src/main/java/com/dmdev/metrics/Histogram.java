@@ -0,0 +1,82 @@
+package com.dmdev.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-linear histogram: exact below 32, then 16 buckets per power of two (relative error under 6.25%).
+ */
+class Histogram {
+    private static final int LINEAR_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MIN_EXPONENT = 5;
+    private static final int BUCKET_COUNT = LINEAR_BUCKETS + (Long.SIZE - 1 - MIN_EXPONENT) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long value) {
+        var normalized = Math.max(0, value);
+        buckets.incrementAndGet(indexOf(normalized));
+        count.increment();
+        sum.add(normalized);
+        max.accumulateAndGet(normalized, Math::max);
+    }
+
+    HistogramSnapshot snapshot() {
+        var counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        var maxValue = max.get();
+        return HistogramSnapshot.builder()
+                .count(total)
+                .sum(sum.sum())
+                .max(maxValue)
+                .p50(percentile(counts, total, 0.50, maxValue))
+                .p95(percentile(counts, total, 0.95, maxValue))
+                .p99(percentile(counts, total, 0.99, maxValue))
+                .build();
+    }
+
+    private static long percentile(long[] counts, long total, double quantile, long maxValue) {
+        if (total == 0) {
+            return 0;
+        }
+        var rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        var subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        var exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + MIN_EXPONENT;
+        var subBucket = (long) (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        var width = 1L << (exponent - SUB_BUCKET_BITS);
+        var lowerBound = (1L << exponent) | (subBucket * width);
+        return lowerBound + width - 1;
+    }
+}
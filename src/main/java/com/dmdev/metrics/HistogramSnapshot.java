@@ -0,0 +1,19 @@
+package com.dmdev.metrics;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class HistogramSnapshot {
+    long count;
+    long sum;
+    long max;
+    long p50;
+    long p95;
+    long p99;
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+}
@@ -0,0 +1,41 @@
+package com.dmdev.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class InMemoryMetrics implements Metrics {
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public Sample startTimer(String name) {
+        var histogram = histogram(name);
+        var startedAt = System.nanoTime();
+        return () -> histogram.record(System.nanoTime() - startedAt);
+    }
+
+    @Override
+    public void recordValue(String name, long value) {
+        histogram(name).record(value);
+    }
+
+    @Override
+    public void increment(String name) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).increment();
+    }
+
+    @Override
+    public MetricsSnapshot snapshot() {
+        Map<String, HistogramSnapshot> histogramSnapshots = new TreeMap<>();
+        histograms.forEach((name, histogram) -> histogramSnapshots.put(name, histogram.snapshot()));
+        Map<String, Long> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.sum()));
+        return MetricsSnapshot.of(histogramSnapshots, counterValues);
+    }
+
+    private Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+}
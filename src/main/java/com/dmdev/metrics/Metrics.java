@@ -0,0 +1,17 @@
+package com.dmdev.metrics;
+
+public interface Metrics {
+    Sample startTimer(String name);
+
+    void recordValue(String name, long value);
+
+    void increment(String name);
+
+    MetricsSnapshot snapshot();
+
+    @FunctionalInterface
+    interface Sample extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
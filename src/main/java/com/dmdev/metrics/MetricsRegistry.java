@@ -0,0 +1,16 @@
+package com.dmdev.metrics;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class MetricsRegistry {
+    private static volatile Metrics metrics = NoopMetrics.getInstance();
+
+    public static Metrics get() {
+        return metrics;
+    }
+
+    public static void set(Metrics metrics) {
+        MetricsRegistry.metrics = metrics != null ? metrics : NoopMetrics.getInstance();
+    }
+}
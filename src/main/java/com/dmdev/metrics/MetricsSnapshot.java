@@ -0,0 +1,42 @@
+package com.dmdev.metrics;
+
+import lombok.Value;
+
+import java.util.Map;
+
+@Value(staticConstructor = "of")
+public class MetricsSnapshot {
+    Map<String, HistogramSnapshot> histograms;
+    Map<String, Long> counters;
+
+    /**
+     * Renders the snapshot in the Prometheus text exposition format.
+     */
+    public String toPrometheusText() {
+        var text = new StringBuilder();
+        histograms.forEach((name, histogram) -> {
+            var metricName = sanitize(name);
+            text.append("# TYPE ").append(metricName).append(" summary\n");
+            appendQuantile(text, metricName, "0.5", histogram.getP50());
+            appendQuantile(text, metricName, "0.95", histogram.getP95());
+            appendQuantile(text, metricName, "0.99", histogram.getP99());
+            text.append(metricName).append("_max ").append(histogram.getMax()).append('\n');
+            text.append(metricName).append("_sum ").append(histogram.getSum()).append('\n');
+            text.append(metricName).append("_count ").append(histogram.getCount()).append('\n');
+        });
+        counters.forEach((name, value) -> {
+            var metricName = sanitize(name) + "_total";
+            text.append("# TYPE ").append(metricName).append(" counter\n");
+            text.append(metricName).append(' ').append(value).append('\n');
+        });
+        return text.toString();
+    }
+
+    private static void appendQuantile(StringBuilder text, String metricName, String quantile, long value) {
+        text.append(metricName).append("{quantile=\"").append(quantile).append("\"} ").append(value).append('\n');
+    }
+
+    private static String sanitize(String name) {
+        return name.replaceAll("[^a-zA-Z0-9_]", "_");
+    }
+}
@@ -0,0 +1,37 @@
+package com.dmdev.metrics;
+
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+import static lombok.AccessLevel.PRIVATE;
+
+@NoArgsConstructor(access = PRIVATE)
+public class NoopMetrics implements Metrics {
+    private static final NoopMetrics INSTANCE = new NoopMetrics();
+    private static final Sample NOOP_SAMPLE = () -> {
+    };
+    private static final MetricsSnapshot EMPTY_SNAPSHOT = MetricsSnapshot.of(Map.of(), Map.of());
+
+    public static NoopMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public Sample startTimer(String name) {
+        return NOOP_SAMPLE;
+    }
+
+    @Override
+    public void recordValue(String name, long value) {
+    }
+
+    @Override
+    public void increment(String name) {
+    }
+
+    @Override
+    public MetricsSnapshot snapshot() {
+        return EMPTY_SNAPSHOT;
+    }
+}
@@ -0,0 +1,93 @@
+package com.dmdev.service;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Subscription;
+import com.dmdev.util.PoolSettings;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class AsyncSubscriptionService implements AutoCloseable {
+    private final SubscriptionService subscriptionService;
+    private final Executor executor;
+    private final Semaphore inFlight;
+    private final ExecutorService ownedExecutor;
+
+    public AsyncSubscriptionService(SubscriptionService subscriptionService, Executor executor, int maxInFlight) {
+        this(subscriptionService, executor, maxInFlight, null);
+    }
+
+    private AsyncSubscriptionService(SubscriptionService subscriptionService, Executor executor, int maxInFlight,
+                                     ExecutorService ownedExecutor) {
+        this.subscriptionService = subscriptionService;
+        this.executor = executor;
+        this.inFlight = new Semaphore(maxInFlight, true);
+        this.ownedExecutor = ownedExecutor;
+    }
+
+    public static AsyncSubscriptionService withDefaultExecutor(SubscriptionService subscriptionService) {
+        var maxInFlight = PoolSettings.fromProperties().getMaxSize();
+        var threadNumber = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(maxInFlight, runnable -> {
+            var thread = new Thread(runnable, "subscription-service-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new AsyncSubscriptionService(subscriptionService, executor, maxInFlight, executor);
+    }
+
+    public CompletableFuture<Subscription> upsert(CreateSubscriptionDto dto) {
+        return supplyAsync(() -> subscriptionService.upsert(dto));
+    }
+
+    public CompletableFuture<Void> cancel(Integer subscriptionId) {
+        return supplyAsync(() -> {
+            subscriptionService.cancel(subscriptionId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> expire(Integer subscriptionId) {
+        return supplyAsync(() -> {
+            subscriptionService.expire(subscriptionId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Integer> expireAllDueBefore(Instant dueBefore) {
+        return supplyAsync(() -> subscriptionService.expireAllDueBefore(dueBefore));
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Takes the in-flight permit on the calling thread before submitting, so callers wait for it when the limit is
+     * reached instead of executor threads parking on it while queued work cannot start.
+     */
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> work) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+        try {
+            return CompletableFuture.supplyAsync(work, executor)
+                    .whenComplete((result, failure) -> inFlight.release());
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+}
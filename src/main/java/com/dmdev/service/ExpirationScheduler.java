@@ -0,0 +1,374 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.SubscriptionRepository;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.metrics.MetricsRegistry;
+import com.dmdev.util.PropertiesUtil;
+import lombok.extern.java.Log;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Expires active subscriptions through {@link SubscriptionService#expireIfDue} when their expiration date passes, instead
+ * of scanning the table on every sweep. Deadlines within the horizon are kept in a min-heap of primitive
+ * (deadline, id) pairs; the table is read again once half of the horizon has passed. Upserts and cancellations
+ * re-arm or disarm a subscription by replacing its entry in the armed map only, and heap entries that no longer
+ * match it are dropped when they reach the top. Upserts returned without an id, such as those buffered by
+ * {@link com.dmdev.dao.WriteBehindSubscriptionDao}, cannot re-arm: a renewed subscription is skipped at its old
+ * deadline by the conditional expire and armed again on the next reload. Time comes from the given clock only, so
+ * {@link #tick()} can be driven by a fixed clock.
+ */
+@Log
+public class ExpirationScheduler implements SubscriptionListener, AutoCloseable {
+    private static final String TICK_INTERVAL_KEY = "subscription.expiration.scheduler.tick-interval-ms";
+    private static final String HORIZON_KEY = "subscription.expiration.scheduler.horizon-ms";
+    private static final String BATCH_SIZE_KEY = "subscription.expiration.scheduler.batch-size";
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final SubscriptionService subscriptionService;
+    private final SubscriptionRepository subscriptionDao;
+    private final Clock clock;
+    private final Duration tickInterval;
+    private final long horizonMillis;
+    private final int batchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private long[] deadlines = new long[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int size;
+    private Map<Integer, Long> armed = new HashMap<>();
+    private Set<Integer> touchedWhileLoading;
+    private volatile long loadedUntil = Long.MIN_VALUE;
+    private ScheduledExecutorService ticker;
+
+    public ExpirationScheduler(SubscriptionService subscriptionService, SubscriptionRepository subscriptionDao, Clock clock,
+                               Duration tickInterval, Duration horizon, int batchSize) {
+        if (tickInterval.isNegative() || tickInterval.isZero() || horizon.isNegative() || horizon.isZero() || batchSize < 1) {
+            throw new IllegalArgumentException("Invalid expiration scheduler settings: tickInterval=%s, horizon=%s, batchSize=%d"
+                    .formatted(tickInterval, horizon, batchSize));
+        }
+        this.subscriptionService = subscriptionService;
+        this.subscriptionDao = subscriptionDao;
+        this.clock = clock;
+        this.tickInterval = tickInterval;
+        this.horizonMillis = horizon.toMillis();
+        this.batchSize = batchSize;
+        subscriptionService.addListener(this);
+    }
+
+    public static ExpirationScheduler fromProperties(SubscriptionService subscriptionService,
+                                                     SubscriptionRepository subscriptionDao, Clock clock) {
+        return new ExpirationScheduler(
+                subscriptionService,
+                subscriptionDao,
+                clock,
+                Duration.ofMillis(PropertiesUtil.getLong(TICK_INTERVAL_KEY, 1000)),
+                Duration.ofMillis(PropertiesUtil.getLong(HORIZON_KEY, 3_600_000)),
+                PropertiesUtil.getInt(BATCH_SIZE_KEY, 500));
+    }
+
+    /**
+     * Runs {@link #tick()} on a daemon thread every tick interval until closed.
+     */
+    public void start() {
+        lock.lock();
+        try {
+            if (ticker != null) {
+                throw new IllegalStateException("Expiration scheduler is already started");
+            }
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "subscription-expiration");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleWithFixedDelay(this::tickQuietly, 0, tickInterval.toMillis(), MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Expires every armed subscription whose deadline has passed, in batches of the batch size, and returns how
+     * many were expired. Subscriptions that were renewed, canceled or deleted since they were armed are skipped.
+     */
+    public int tick() {
+        try (var ignored = MetricsRegistry.get().startTimer("scheduler.tick")) {
+            var now = clock.millis();
+            if (loadedUntil == Long.MIN_VALUE || now > loadedUntil - horizonMillis / 2) {
+                load(now);
+            }
+            var expired = 0;
+            int[] due;
+            do {
+                due = pollDue(now);
+                for (int i = 0; i < due.length; i++) {
+                    var id = due[i];
+                    try {
+                        if (subscriptionService.expireIfDue(id, Instant.ofEpochMilli(now))) {
+                            expired++;
+                        } else {
+                            log.fine(() -> "Skipping subscription %d that is no longer due".formatted(id));
+                        }
+                    } catch (RuntimeException e) {
+                        rearm(Arrays.copyOfRange(due, i, due.length), now);
+                        throw e;
+                    }
+                }
+            } while (due.length == batchSize);
+            MetricsRegistry.get().recordValue("scheduler.expired", expired);
+            return expired;
+        }
+    }
+
+    @Override
+    public void onUpsert(Subscription subscription) {
+        if (subscription.getId() == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (subscription.getStatus() == Status.ACTIVE && subscription.getExpirationDate() != null) {
+                arm(subscription.getId(), subscription.getExpirationDate().toEpochMilli());
+            } else {
+                disarm(subscription.getId());
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onCancel(Integer subscriptionId) {
+        lock.lock();
+        try {
+            disarm(subscriptionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getArmedCount() {
+        lock.lock();
+        try {
+            return armed.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (ticker != null) {
+                ticker.shutdownNow();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void tickQuietly() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Expiration tick failed, due subscriptions are retried on the next tick", e);
+        }
+    }
+
+    private void load(long now) {
+        var previousLoadedUntil = loadedUntil;
+        var until = now + horizonMillis;
+        lock.lock();
+        try {
+            loadedUntil = until;
+            touchedWhileLoading = new HashSet<>();
+        } finally {
+            lock.unlock();
+        }
+
+        long[] loadedDeadlines;
+        int[] loadedIds;
+        int count;
+        try {
+            var subscriptions = subscriptionDao.findActiveExpiringBefore(Instant.ofEpochMilli(until));
+            count = subscriptions.size();
+            loadedDeadlines = new long[count];
+            loadedIds = new int[count];
+            for (int i = 0; i < count; i++) {
+                loadedDeadlines[i] = subscriptions.get(i).getExpirationDate().toEpochMilli();
+                loadedIds[i] = subscriptions.get(i).getId();
+            }
+        } catch (RuntimeException e) {
+            lock.lock();
+            try {
+                loadedUntil = previousLoadedUntil;
+                touchedWhileLoading = null;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+
+        lock.lock();
+        try {
+            Map<Integer, Long> loaded = new HashMap<>(Math.max(16, (count + touchedWhileLoading.size()) * 2));
+            for (int i = 0; i < count; i++) {
+                if (!touchedWhileLoading.contains(loadedIds[i])) {
+                    loaded.put(loadedIds[i], loadedDeadlines[i]);
+                }
+            }
+            for (var id : touchedWhileLoading) {
+                var current = armed.get(id);
+                if (current != null) {
+                    loaded.put(id, current);
+                }
+            }
+            armed = loaded;
+            touchedWhileLoading = null;
+            rebuild();
+        } finally {
+            lock.unlock();
+        }
+        MetricsRegistry.get().recordValue("scheduler.armed", count);
+    }
+
+    private int[] pollDue(long now) {
+        lock.lock();
+        try {
+            var due = new int[Math.min(batchSize, size)];
+            var count = 0;
+            while (count < due.length && size > 0 && deadlines[0] <= now) {
+                var deadline = deadlines[0];
+                var id = ids[0];
+                removeTop();
+                var current = armed.get(id);
+                if (current != null && current == deadline) {
+                    armed.remove(id);
+                    due[count++] = id;
+                }
+            }
+            return count == due.length ? due : Arrays.copyOf(due, count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rearm(int[] subscriptionIds, long deadline) {
+        lock.lock();
+        try {
+            for (var id : subscriptionIds) {
+                if (!armed.containsKey(id)) {
+                    arm(id, deadline);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void arm(int id, long deadline) {
+        if (touchedWhileLoading != null) {
+            touchedWhileLoading.add(id);
+        }
+        if (deadline >= loadedUntil) {
+            armed.remove(id);
+            return;
+        }
+        var previous = armed.put(id, deadline);
+        if (previous == null || previous != deadline) {
+            push(deadline, id);
+        }
+    }
+
+    private void disarm(int id) {
+        if (touchedWhileLoading != null) {
+            touchedWhileLoading.add(id);
+        }
+        armed.remove(id);
+    }
+
+    private void push(long deadline, int id) {
+        if (size == ids.length) {
+            if (size > 2 * armed.size()) {
+                rebuild();
+                push(deadline, id);
+                return;
+            }
+            deadlines = Arrays.copyOf(deadlines, size * 2);
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        var index = size++;
+        while (index > 0) {
+            var parent = (index - 1) >>> 1;
+            if (!isBefore(deadline, id, deadlines[parent], ids[parent])) {
+                break;
+            }
+            deadlines[index] = deadlines[parent];
+            ids[index] = ids[parent];
+            index = parent;
+        }
+        deadlines[index] = deadline;
+        ids[index] = id;
+    }
+
+    private void removeTop() {
+        size--;
+        if (size > 0) {
+            siftDown(0, deadlines[size], ids[size]);
+        }
+    }
+
+    /**
+     * Drops stale entries by refilling the heap from the armed map.
+     */
+    private void rebuild() {
+        var capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, armed.size())) << 1);
+        deadlines = new long[capacity];
+        ids = new int[capacity];
+        size = 0;
+        for (var entry : armed.entrySet()) {
+            deadlines[size] = entry.getValue();
+            ids[size++] = entry.getKey();
+        }
+        for (int index = (size >>> 1) - 1; index >= 0; index--) {
+            siftDown(index, deadlines[index], ids[index]);
+        }
+    }
+
+    private void siftDown(int index, long deadline, int id) {
+        var half = size >>> 1;
+        while (index < half) {
+            var child = 2 * index + 1;
+            var right = child + 1;
+            if (right < size && isBefore(deadlines[right], ids[right], deadlines[child], ids[child])) {
+                child = right;
+            }
+            if (!isBefore(deadlines[child], ids[child], deadline, id)) {
+                break;
+            }
+            deadlines[index] = deadlines[child];
+            ids[index] = ids[child];
+            index = child;
+        }
+        deadlines[index] = deadline;
+        ids[index] = id;
+    }
+
+    private static boolean isBefore(long deadline, int id, long otherDeadline, int otherId) {
+        return deadline < otherDeadline || deadline == otherDeadline && id < otherId;
+    }
+}
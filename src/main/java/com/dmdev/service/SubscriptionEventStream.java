@@ -0,0 +1,75 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.SubscriptionEventDao;
+import com.dmdev.entity.SubscriptionEvent;
+import com.dmdev.metrics.MetricsRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Follows the subscription outbox from a stored offset. Offsets are assigned when an event is written but become
+ * visible when its transaction commits, so a missing offset may still appear; reading stops before such a gap until
+ * the grace period, which should exceed the longest write transaction, has passed since this stream first saw it.
+ * The events' own occurred-at time is not used, it comes from the writer's clock before a commit of unknown length.
+ * Not thread-safe, one instance per consumer.
+ */
+public class SubscriptionEventStream {
+    private final SubscriptionEventDao eventDao;
+    private final int batchSize;
+    private final Duration gracePeriod;
+    private final Clock clock;
+    private long offset;
+    private long gapOffset;
+    private Instant gapSeenAt;
+
+    public SubscriptionEventStream(SubscriptionEventDao eventDao, long fromOffset, int batchSize,
+                                   Duration gracePeriod, Clock clock) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        this.eventDao = eventDao;
+        this.offset = fromOffset;
+        this.batchSize = batchSize;
+        this.gracePeriod = gracePeriod;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the next events after the current offset and moves the offset past them; empty when caught up.
+     */
+    public List<SubscriptionEvent> poll() {
+        try (var ignored = MetricsRegistry.get().startTimer("stream.poll")) {
+            var events = eventDao.findAfter(offset, batchSize);
+            var now = clock.instant();
+            List<SubscriptionEvent> ready = new ArrayList<>(events.size());
+            for (var event : events) {
+                if (event.getId() != offset + 1 && !isGapSettled(now)) {
+                    break;
+                }
+                ready.add(event);
+                offset = event.getId();
+            }
+            MetricsRegistry.get().recordValue("stream.poll.events", ready.size());
+            return ready;
+        }
+    }
+
+    private boolean isGapSettled(Instant now) {
+        if (gapSeenAt == null || gapOffset != offset) {
+            gapOffset = offset;
+            gapSeenAt = now;
+        }
+        return !now.isBefore(gapSeenAt.plus(gracePeriod));
+    }
+
+    /**
+     * The offset of the last returned event, to be stored by the consumer and passed back on restart.
+     */
+    public long getOffset() {
+        return offset;
+    }
+}
@@ -0,0 +1,15 @@
+package com.dmdev.service;
+
+import com.dmdev.entity.Subscription;
+
+/**
+ * Notified by {@link SubscriptionService} after a change has been written, on the calling thread.
+ */
+public interface SubscriptionListener {
+
+    default void onUpsert(Subscription subscription) {
+    }
+
+    default void onCancel(Integer subscriptionId) {
+    }
+}
@@ -1,62 +1,182 @@
 package com.dmdev.service;
 
-import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.dao.SubscriptionRepository;
 import com.dmdev.dto.CreateSubscriptionDto;
-import com.dmdev.entity.Provider;
 import com.dmdev.entity.Status;
 import com.dmdev.entity.Subscription;
 import com.dmdev.exception.SubscriptionException;
 import com.dmdev.exception.ValidationException;
 import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.metrics.MetricsRegistry;
+import com.dmdev.util.PropertiesUtil;
+import com.dmdev.util.StripedLock;
+import com.dmdev.util.TransactionManager;
+import com.dmdev.util.TransactionRunner;
 import com.dmdev.validator.CreateSubscriptionValidator;
-import lombok.RequiredArgsConstructor;
 
+import java.sql.SQLException;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
 
-@RequiredArgsConstructor
 public class SubscriptionService {
-    private final SubscriptionDao subscriptionDao;
+    private static final String EXPIRATION_CHUNK_SIZE_KEY = "subscription.expiration.chunk-size";
+    private static final int EXPIRATION_CHUNK_SIZE = PropertiesUtil.getInt(EXPIRATION_CHUNK_SIZE_KEY, 1000);
+    private static final Set<Status> CANCELABLE_STATUSES = EnumSet.of(Status.ACTIVE);
+    private static final Set<Status> EXPIRABLE_STATUSES = EnumSet.complementOf(EnumSet.of(Status.EXPIRED));
+    private static final String UPSERT_LOCK_STRIPES_KEY = "subscription.upsert.lock-stripes";
+    private static final StripedLock UPSERT_LOCKS = new StripedLock(PropertiesUtil.getInt(UPSERT_LOCK_STRIPES_KEY, 256));
+    private static final int MAX_UPSERT_ATTEMPTS = 3;
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private final SubscriptionRepository subscriptionDao;
     private final CreateSubscriptionMapper createSubscriptionMapper;
     private final CreateSubscriptionValidator createSubscriptionValidator;
     private final Clock clock;
+    private final TransactionRunner transactionRunner;
+    private final List<SubscriptionListener> listeners = new CopyOnWriteArrayList<>();
 
-    public Subscription upsert(CreateSubscriptionDto dto) {
-        var validationResult = createSubscriptionValidator.validate(dto);
-        if (validationResult.hasErrors()) {
-            throw new ValidationException(validationResult.getErrors());
-        }
+    public SubscriptionService(SubscriptionRepository subscriptionDao,
+                               CreateSubscriptionMapper createSubscriptionMapper,
+                               CreateSubscriptionValidator createSubscriptionValidator,
+                               Clock clock) {
+        this(subscriptionDao, createSubscriptionMapper, createSubscriptionValidator, clock, null);
+    }
 
-        Subscription subscription = subscriptionDao.findByUserId(dto.getUserId()).stream()
-                .filter(existingSubscription -> existingSubscription.getName().equals(dto.getName()))
-                .filter(existingSubscription -> existingSubscription.getProvider() == Provider.findByName(dto.getProvider()))
-                .findFirst()
-                .map(existingSubscription -> existingSubscription
-                        .setExpirationDate(dto.getExpirationDate())
-                        .setStatus(Status.ACTIVE))
-                .orElseGet(() -> createSubscriptionMapper.map(dto));
+    /**
+     * Uses the given transaction runner for {@link #inTransaction}, or the one of the DAO when null.
+     */
+    public SubscriptionService(SubscriptionRepository subscriptionDao,
+                               CreateSubscriptionMapper createSubscriptionMapper,
+                               CreateSubscriptionValidator createSubscriptionValidator,
+                               Clock clock,
+                               TransactionRunner transactionRunner) {
+        this.subscriptionDao = subscriptionDao;
+        this.createSubscriptionMapper = createSubscriptionMapper;
+        this.createSubscriptionValidator = createSubscriptionValidator;
+        this.clock = clock;
+        this.transactionRunner = transactionRunner;
+    }
 
-        return subscriptionDao.upsert(subscription);
+    public void addListener(SubscriptionListener listener) {
+        listeners.add(listener);
+    }
+
+    public Subscription upsert(CreateSubscriptionDto dto) {
+        try (var ignored = MetricsRegistry.get().startTimer("service.upsert")) {
+            var validationResult = createSubscriptionValidator.validate(dto);
+            if (validationResult.hasErrors()) {
+                throw new ValidationException(validationResult.getErrors());
+            }
+
+            var subscription = createSubscriptionMapper.map(dto);
+            var upserted = upsertByUserIdAndName(subscription);
+            for (var listener : listeners) {
+                listener.onUpsert(upserted);
+            }
+            return upserted;
+        }
     }
 
     public void cancel(Integer subscriptionId) {
-        var subscription = subscriptionDao.findById(subscriptionId)
-                .orElseThrow(IllegalArgumentException::new);
-        if (subscription.getStatus() != Status.ACTIVE) {
-            throw new SubscriptionException(String.format("Only active subscription %d can be canceled", subscriptionId));
+        try (var ignored = MetricsRegistry.get().startTimer("service.cancel")) {
+            if (!subscriptionDao.transitionStatus(subscriptionId, CANCELABLE_STATUSES, Status.CANCELED, null)) {
+                subscriptionDao.findById(subscriptionId).orElseThrow(IllegalArgumentException::new);
+                throw new SubscriptionException(String.format("Only active subscription %d can be canceled", subscriptionId));
+            }
+            for (var listener : listeners) {
+                listener.onCancel(subscriptionId);
+            }
         }
-        subscription.setStatus(Status.CANCELED);
-        subscriptionDao.update(subscription);
     }
 
     public void expire(Integer subscriptionId) {
-        var subscription = subscriptionDao.findById(subscriptionId)
-                .orElseThrow(IllegalArgumentException::new);
-        if (subscription.getStatus() == Status.EXPIRED) {
-            throw new SubscriptionException(String.format("Subscription %d has already expired", subscriptionId));
-        }
-        subscription.setStatus(Status.EXPIRED);
-        subscription.setExpirationDate(Instant.now(clock));
-        subscriptionDao.update(subscription);
+        try (var ignored = MetricsRegistry.get().startTimer("service.expire")) {
+            if (!subscriptionDao.transitionStatus(subscriptionId, EXPIRABLE_STATUSES, Status.EXPIRED, Instant.now(clock))) {
+                subscriptionDao.findById(subscriptionId).orElseThrow(IllegalArgumentException::new);
+                throw new SubscriptionException(String.format("Subscription %d has already expired", subscriptionId));
+            }
+        }
+    }
+
+    /**
+     * Expires the subscription if it is still active and due at {@code dueAt}, and returns false when it was
+     * renewed, canceled, expired or deleted in the meantime.
+     */
+    public boolean expireIfDue(Integer subscriptionId, Instant dueAt) {
+        try (var ignored = MetricsRegistry.get().startTimer("service.expireIfDue")) {
+            return subscriptionDao.expireIfDue(subscriptionId, dueAt, Instant.now(clock));
+        }
+    }
+
+    public <R> R inTransaction(Supplier<R> work) {
+        return getTransactionRunner().inTransaction(work);
+    }
+
+    public void inTransaction(Runnable work) {
+        getTransactionRunner().inTransaction(work);
+    }
+
+    public int expireAllDue() {
+        return expireAllDueBefore(Instant.now(clock));
+    }
+
+    public int expireAllDueBefore(Instant dueBefore) {
+        try (var ignored = MetricsRegistry.get().startTimer("service.expireAllDueBefore")) {
+            var expiredAt = Instant.now(clock);
+            var expiredCount = 0;
+            int expiredInChunk;
+            do {
+                expiredInChunk = subscriptionDao.expireDueBefore(dueBefore, expiredAt, EXPIRATION_CHUNK_SIZE).size();
+                expiredCount += expiredInChunk;
+            } while (expiredInChunk == EXPIRATION_CHUNK_SIZE);
+            return expiredCount;
+        }
+    }
+
+    /**
+     * An atomic upsert, such as PostgreSQL's INSERT ... ON CONFLICT, runs as is. Otherwise, as with H2's MERGE, a racing
+     * insert of the same new subscription fails with a unique violation, so same-key upserts are serialized by the
+     * stripe lock outside a transaction.
+     */
+    private Subscription upsertByUserIdAndName(Subscription subscription) {
+        if (subscriptionDao.isUpsertAtomic()) {
+            return subscriptionDao.upsertByUserIdAndName(subscription);
+        }
+        if (TransactionManager.isActive()) {
+            return upsertRetryingUniqueViolations(subscription);
+        }
+        return UPSERT_LOCKS.withLock(new UpsertKey(subscription.getUserId(), subscription.getName()),
+                () -> subscriptionDao.upsertByUserIdAndName(subscription));
+    }
+
+    /**
+     * Inside a transaction the stripe lock would be released before commit and could wait on row locks of other
+     * transactions, so a racing insert is retried as an update instead. Only used for non-atomic upserts: H2 keeps
+     * the transaction usable after the failed statement, while PostgreSQL would abort it.
+     */
+    private Subscription upsertRetryingUniqueViolations(Subscription subscription) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return subscriptionDao.upsertByUserIdAndName(subscription);
+            } catch (Exception e) {
+                if (attempt == MAX_UPSERT_ATTEMPTS || !(e instanceof SQLException sqlException)
+                        || !UNIQUE_VIOLATION.equals(sqlException.getSQLState())) {
+                    throw e;
+                }
+                MetricsRegistry.get().increment("service.upsert.retried");
+            }
+        }
+    }
+
+    private TransactionRunner getTransactionRunner() {
+        return transactionRunner != null ? transactionRunner : subscriptionDao.getTransactionRunner();
+    }
+
+    private record UpsertKey(Integer userId, String name) {
     }
 }
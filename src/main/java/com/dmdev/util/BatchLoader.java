@@ -0,0 +1,129 @@
+package com.dmdev.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * Coalesces single-key loads into calls of the batch function. Without a scheduler the loader is request-scoped: it
+ * keeps results until cleared and loads what is queued when {@link #dispatch()} is called. With a scheduler it can be
+ * shared by independent callers: queued keys are dispatched after the dispatch delay, and results are only shared
+ * while they are loading.
+ */
+public class BatchLoader<K, V> {
+    private final Function<Collection<K>, Map<K, V>> batchFunction;
+    private final int maxBatchSize;
+    private final Duration dispatchDelay;
+    private final ScheduledExecutorService scheduler;
+    private final Map<K, CompletableFuture<V>> loaded = new HashMap<>();
+    private Map<K, CompletableFuture<V>> queued = new LinkedHashMap<>();
+    private boolean dispatchScheduled;
+
+    public BatchLoader(Function<Collection<K>, Map<K, V>> batchFunction, int maxBatchSize) {
+        this(batchFunction, maxBatchSize, null, null);
+    }
+
+    public BatchLoader(Function<Collection<K>, Map<K, V>> batchFunction, int maxBatchSize,
+                       Duration dispatchDelay, ScheduledExecutorService scheduler) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Max batch size must be positive: " + maxBatchSize);
+        }
+        if (scheduler != null && (dispatchDelay == null || dispatchDelay.isNegative())) {
+            throw new IllegalArgumentException("Invalid dispatch delay: " + dispatchDelay);
+        }
+        this.batchFunction = batchFunction;
+        this.maxBatchSize = maxBatchSize;
+        this.dispatchDelay = dispatchDelay;
+        this.scheduler = scheduler;
+    }
+
+    public CompletableFuture<V> load(K key) {
+        CompletableFuture<V> future;
+        boolean full;
+        boolean scheduleDispatch;
+        synchronized (this) {
+            future = loaded.get(key);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            loaded.put(key, future);
+            queued.put(key, future);
+            full = queued.size() >= maxBatchSize;
+            scheduleDispatch = !full && scheduler != null && !dispatchScheduled;
+            dispatchScheduled |= scheduleDispatch;
+        }
+        if (full) {
+            dispatch();
+        } else if (scheduleDispatch) {
+            try {
+                scheduler.schedule(this::dispatch, dispatchDelay.toNanos(), NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                dispatch();
+            }
+        }
+        return future;
+    }
+
+    public CompletableFuture<Map<K, V>> loadMany(Collection<K> keys) {
+        Map<K, CompletableFuture<V>> futures = new LinkedHashMap<>();
+        for (var key : keys) {
+            futures.computeIfAbsent(key, this::load);
+        }
+        return CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<K, V> values = new LinkedHashMap<>();
+                    futures.forEach((key, future) -> values.put(key, future.join()));
+                    return values;
+                });
+    }
+
+    public void dispatch() {
+        Map<K, CompletableFuture<V>> batch;
+        synchronized (this) {
+            if (queued.isEmpty()) {
+                return;
+            }
+            batch = queued;
+            queued = new LinkedHashMap<>();
+            dispatchScheduled = false;
+        }
+        try {
+            var values = batchFunction.apply(new ArrayList<>(batch.keySet()));
+            if (scheduler != null) {
+                synchronized (this) {
+                    batch.forEach(loaded::remove);
+                }
+            }
+            batch.forEach((key, future) -> future.complete(values.get(key)));
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                batch.keySet().forEach(loaded::remove);
+            }
+            batch.values().forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    public synchronized void clear(K key) {
+        if (!queued.containsKey(key)) {
+            loaded.remove(key);
+        }
+    }
+
+    public synchronized void clearAll() {
+        loaded.keySet().retainAll(queued.keySet());
+    }
+
+    public synchronized int getQueuedCount() {
+        return queued.size();
+    }
+}
@@ -1,10 +1,15 @@
 package com.dmdev.util;
 
+import com.dmdev.dao.SchemaMigrator;
+import com.dmdev.metrics.MetricsRegistry;
 import lombok.SneakyThrows;
 import lombok.experimental.UtilityClass;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 
 @UtilityClass
 public class ConnectionManager {
@@ -12,9 +17,20 @@ public class ConnectionManager {
     private static final String USER_KEY = "db.user";
     private static final String PASSWORD_KEY = "db.password";
     private static final String DRIVER_KEY = "db.driver";
+    private static final String REPLICA_URLS_KEY = "db.replica.urls";
+    private static final String REPLICA_BALANCING_KEY = "db.replica.balancing";
+    private static final String READ_YOUR_WRITES_WINDOW_KEY = "db.replica.read-your-writes-ms";
+    private static final String MIGRATE_ON_STARTUP_KEY = "db.schema.migrate-on-startup";
+
+    private static final ConnectionRouter router;
 
     static {
         loadDriver();
+        router = createRouter();
+        if (Boolean.parseBoolean(PropertiesUtil.get(MIGRATE_ON_STARTUP_KEY))) {
+            migrateSchema();
+        }
+        ShutdownSequence.getInstance().registerLast(ConnectionManager::closePool);
     }
 
     @SneakyThrows
@@ -22,11 +38,66 @@ public class ConnectionManager {
         Class.forName(PropertiesUtil.get(DRIVER_KEY));
     }
 
+    @SneakyThrows
+    private static void migrateSchema() {
+        try (var connection = router.write()) {
+            SchemaMigrator.getInstance().migrate(connection);
+        }
+    }
+
+    private static ConnectionRouter createRouter() {
+        var settings = PoolSettings.fromProperties();
+        var user = PropertiesUtil.get(USER_KEY);
+        var password = PropertiesUtil.get(PASSWORD_KEY);
+        var primary = new ConnectionPool(PropertiesUtil.get(URL_KEY), user, password, settings);
+        List<ConnectionPool> replicas = getReplicaUrls().stream()
+                .map(url -> new ConnectionPool(url, user, password, settings))
+                .toList();
+        var balancing = PropertiesUtil.get(REPLICA_BALANCING_KEY);
+        return new ConnectionRouter(
+                primary,
+                replicas,
+                balancing == null || balancing.isBlank()
+                        ? ConnectionRouter.Balancing.ROUND_ROBIN
+                        : ConnectionRouter.Balancing.valueOf(balancing.trim()),
+                Duration.ofMillis(PropertiesUtil.getLong(READ_YOUR_WRITES_WINDOW_KEY, 1000)),
+                Clock.systemUTC());
+    }
+
+    private static List<String> getReplicaUrls() {
+        var urls = PropertiesUtil.get(REPLICA_URLS_KEY);
+        if (urls == null || urls.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+    }
+
     @SneakyThrows
     public static Connection get() {
-        return DriverManager.getConnection(
-                PropertiesUtil.get(URL_KEY),
-                PropertiesUtil.get(USER_KEY),
-                PropertiesUtil.get(PASSWORD_KEY));
+        var transactional = TransactionManager.currentConnection();
+        if (transactional != null) {
+            return transactional;
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("connection.acquire")) {
+            return router.write();
+        }
+    }
+
+    @SneakyThrows
+    public static Connection getForRead() {
+        var transactional = TransactionManager.currentConnection();
+        if (transactional != null) {
+            return transactional;
+        }
+        try (var ignored = MetricsRegistry.get().startTimer("connection.acquire")) {
+            return router.read();
+        }
+    }
+
+    public static void closePool() {
+        router.close();
     }
 }
@@ -0,0 +1,466 @@
+package com.dmdev.util;
+
+import lombok.Getter;
+import lombok.extern.java.Log;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+@Log
+public class ConnectionPool implements AutoCloseable {
+    private static final String POSTGRES_URL_PREFIX = "jdbc:postgresql:";
+
+    private final String url;
+    private final Properties connectionProperties;
+    @Getter
+    private final PoolSettings settings;
+    private final BlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowedConnections = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, PoolSettings settings) {
+        if (settings.getMinSize() < 0 || settings.getMaxSize() < 1 || settings.getMinSize() > settings.getMaxSize()) {
+            throw new IllegalArgumentException("Invalid pool size: min=%d, max=%d"
+                    .formatted(settings.getMinSize(), settings.getMaxSize()));
+        }
+        this.url = url;
+        this.settings = settings;
+        this.connectionProperties = new Properties();
+        if (user != null) {
+            connectionProperties.setProperty("user", user);
+        }
+        if (password != null) {
+            connectionProperties.setProperty("password", password);
+        }
+        if (settings.getPrepareThreshold() >= 0 && url.startsWith(POSTGRES_URL_PREFIX)) {
+            connectionProperties.setProperty("prepareThreshold", String.valueOf(settings.getPrepareThreshold()));
+        }
+        this.permits = new Semaphore(settings.getMaxSize(), true);
+
+        fillToMinSize();
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        housekeeper.scheduleWithFixedDelay(this::houseKeep,
+                settings.getHousekeepingPeriodMillis(), settings.getHousekeepingPeriodMillis(), MILLISECONDS);
+    }
+
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        acquirePermit();
+        try {
+            var pooled = takeIdleOrCreate();
+            pooled.markBorrowed(settings.getLeakDetectionThresholdMillis() > 0);
+            borrowedConnections.add(pooled);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public int getActiveCount() {
+        return borrowedConnections.size();
+    }
+
+    public int getTotalCount() {
+        return getIdleCount() + getActiveCount();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    private void acquirePermit() throws SQLException {
+        try {
+            if (!permits.tryAcquire(settings.getBorrowTimeoutMillis(), MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out after %d ms waiting for a connection, pool size %d"
+                        .formatted(settings.getBorrowTimeoutMillis(), settings.getMaxSize()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a connection", e);
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            if (pooled.isValid(settings.getValidationTimeoutSeconds())) {
+                return pooled;
+            }
+            pooled.closePhysical();
+        }
+        return createConnection();
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        return new PooledConnection(DriverManager.getConnection(url, connectionProperties));
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowedConnections.remove(pooled);
+        try {
+            pooled.reset();
+            if (closed) {
+                pooled.closePhysical();
+            } else {
+                pooled.markIdle();
+                idleConnections.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            log.log(Level.WARNING, "Discarding connection that could not be reset", e);
+            pooled.closePhysical();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void houseKeep() {
+        try {
+            evictIdle();
+            fillToMinSize();
+            detectLeaks();
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Connection pool housekeeping failed", e);
+        }
+    }
+
+    private void evictIdle() {
+        var now = System.currentTimeMillis();
+        for (var pooled : idleConnections) {
+            if (getTotalCount() <= settings.getMinSize()) {
+                return;
+            }
+            if (now - pooled.getLastUsedAt() > settings.getIdleTimeoutMillis() && idleConnections.remove(pooled)) {
+                pooled.closePhysical();
+            }
+        }
+    }
+
+    private void fillToMinSize() {
+        while (!closed && getTotalCount() < settings.getMinSize()) {
+            try {
+                idleConnections.offerLast(createConnection());
+            } catch (SQLException e) {
+                log.log(Level.WARNING, "Could not open connection to " + url, e);
+                return;
+            }
+        }
+    }
+
+    private void detectLeaks() {
+        var threshold = settings.getLeakDetectionThresholdMillis();
+        if (threshold <= 0) {
+            return;
+        }
+        var now = System.currentTimeMillis();
+        for (var pooled : borrowedConnections) {
+            if (now - pooled.getBorrowedAt() > threshold && pooled.markLeakReported()) {
+                log.log(Level.WARNING, "Connection leak detection triggered: connection borrowed %d ms ago has not been returned"
+                        .formatted(now - pooled.getBorrowedAt()), pooled.getBorrowSite());
+            }
+        }
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        @Getter
+        private volatile long lastUsedAt = System.currentTimeMillis();
+        @Getter
+        private volatile long borrowedAt;
+        @Getter
+        private volatile Throwable borrowSite;
+        private final AtomicBoolean leakReported = new AtomicBoolean();
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = settings.getStatementCacheSize() > 0
+                    ? new StatementCache(physical, settings.getStatementCacheSize())
+                    : null;
+        }
+
+        private Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class[]{Connection.class}, new ConnectionHandle(this));
+        }
+
+        private boolean isValid(int timeoutSeconds) {
+            try {
+                return physical.isValid(timeoutSeconds);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void markBorrowed(boolean captureBorrowSite) {
+            borrowedAt = System.currentTimeMillis();
+            borrowSite = captureBorrowSite ? new Throwable("Connection borrowed here") : null;
+            leakReported.set(false);
+        }
+
+        private boolean markLeakReported() {
+            return leakReported.compareAndSet(false, true);
+        }
+
+        private void markIdle() {
+            lastUsedAt = System.currentTimeMillis();
+            borrowSite = null;
+        }
+
+        private void reset() throws SQLException {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+        }
+
+        private void closePhysical() {
+            if (statementCache != null) {
+                statementCache.close();
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                log.log(Level.FINE, "Could not close physical connection", e);
+            }
+        }
+    }
+
+    private final class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private ConnectionHandle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + pooled.physical;
+                default:
+                    break;
+            }
+            if (closed.get()) {
+                throw new SQLException("Connection is closed");
+            }
+            if (pooled.statementCache != null && "prepareStatement".equals(method.getName())) {
+                return pooled.statementCache.prepare((Connection) proxy, method, args);
+            }
+            return invokeTarget(pooled.physical, method, args);
+        }
+    }
+
+    private static final class StatementCache {
+        private final Connection physical;
+        private final Map<List<Object>, PreparedStatement> statements;
+        private boolean closed;
+
+        private StatementCache(Connection physical, int maxSize) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<Object>, PreparedStatement> eldest) {
+                    if (size() > maxSize) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private PreparedStatement prepare(Connection owner, Method method, Object[] args) throws Throwable {
+            var key = toKey(args);
+            PreparedStatement statement;
+            synchronized (this) {
+                statement = statements.remove(key);
+            }
+            if (statement == null) {
+                statement = (PreparedStatement) invokeTarget(physical, method, args);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class[]{PreparedStatement.class}, new StatementHandle(this, owner, key, statement));
+        }
+
+        private void release(List<Object> key, PreparedStatement statement) {
+            synchronized (this) {
+                if (!closed && !statements.containsKey(key)) {
+                    statements.put(key, statement);
+                    return;
+                }
+            }
+            closeQuietly(statement);
+        }
+
+        private synchronized void close() {
+            closed = true;
+            statements.values().forEach(StatementCache::closeQuietly);
+            statements.clear();
+        }
+
+        private static List<Object> toKey(Object[] args) {
+            List<Object> key = new ArrayList<>(args.length);
+            for (var arg : args) {
+                key.add(arg instanceof Object[] array ? Arrays.asList(array) : arg);
+            }
+            return key;
+        }
+
+        private static void closeQuietly(Statement statement) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                log.log(Level.FINE, "Could not close cached statement", e);
+            }
+        }
+    }
+
+    private static final class StatementHandle implements InvocationHandler {
+        private final StatementCache cache;
+        private final Connection owner;
+        private final List<Object> key;
+        private final PreparedStatement statement;
+        private final List<ResultSet> resultSets = new ArrayList<>();
+        private final int defaultFetchSize;
+        private boolean batched;
+        private boolean fetchSizeChanged;
+        private boolean closed;
+
+        private StatementHandle(StatementCache cache, Connection owner, List<Object> key, PreparedStatement statement)
+                throws SQLException {
+            this.cache = cache;
+            this.owner = owner;
+            this.key = key;
+            this.statement = statement;
+            this.defaultFetchSize = statement.getFetchSize();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        returnToCache();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Cached" + statement;
+                case "addBatch":
+                    batched = true;
+                    break;
+                case "setFetchSize":
+                    fetchSizeChanged = true;
+                    break;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            var result = invokeTarget(statement, method, args);
+            if (result instanceof ResultSet resultSet) {
+                resultSets.add(resultSet);
+            }
+            return result;
+        }
+
+        private void returnToCache() {
+            try {
+                for (var resultSet : resultSets) {
+                    resultSet.close();
+                }
+                statement.clearParameters();
+                if (batched) {
+                    statement.clearBatch();
+                }
+                if (fetchSizeChanged) {
+                    statement.setFetchSize(defaultFetchSize);
+                }
+            } catch (SQLException e) {
+                StatementCache.closeQuietly(statement);
+                return;
+            }
+            cache.release(key, statement);
+        }
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
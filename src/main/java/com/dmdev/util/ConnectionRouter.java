@@ -0,0 +1,114 @@
+package com.dmdev.util;
+
+import lombok.extern.java.Log;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+@Log
+public class ConnectionRouter implements AutoCloseable {
+    private final ConnectionPool primary;
+    private final List<ConnectionPool> replicas;
+    private final Balancing balancing;
+    private final Duration readYourWritesWindow;
+    private final Clock clock;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final ThreadLocal<Instant> lastWriteAt = new ThreadLocal<>();
+
+    public ConnectionRouter(ConnectionPool primary, List<ConnectionPool> replicas, Balancing balancing,
+                            Duration readYourWritesWindow, Clock clock) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.balancing = balancing;
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.clock = clock;
+    }
+
+    /**
+     * Borrows a primary connection. With replicas, reads of the releasing thread stay on the primary until the
+     * read-your-writes window has passed since the connection was closed, that is after the write committed.
+     */
+    public Connection write() throws SQLException {
+        var connection = primary.borrow();
+        if (replicas.isEmpty()) {
+            return connection;
+        }
+        lastWriteAt.set(clock.instant());
+        return stampingOnClose(connection);
+    }
+
+    public Connection read() throws SQLException {
+        if (replicas.isEmpty() || isWithinReadYourWritesWindow()) {
+            return primary.borrow();
+        }
+        var replica = selectReplica();
+        try {
+            return replica.borrow();
+        } catch (SQLException e) {
+            log.log(Level.WARNING, "Replica is unavailable, reading from primary", e);
+            return primary.borrow();
+        }
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(ConnectionPool::close);
+        primary.close();
+    }
+
+    private boolean isWithinReadYourWritesWindow() {
+        var writtenAt = lastWriteAt.get();
+        if (writtenAt == null) {
+            return false;
+        }
+        if (clock.instant().isBefore(writtenAt.plus(readYourWritesWindow))) {
+            return true;
+        }
+        lastWriteAt.remove();
+        return false;
+    }
+
+    private Connection stampingOnClose(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if ("close".equals(method.getName())) {
+                            lastWriteAt.set(clock.instant());
+                        }
+                    }
+                });
+    }
+
+    private ConnectionPool selectReplica() {
+        var start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        var selected = replicas.get(start);
+        if (balancing == Balancing.LEAST_BUSY) {
+            for (int i = 1; i < replicas.size(); i++) {
+                var candidate = replicas.get((start + i) % replicas.size());
+                if (candidate.getActiveCount() < selected.getActiveCount()) {
+                    selected = candidate;
+                }
+            }
+        }
+        return selected;
+    }
+
+    public enum Balancing {
+        ROUND_ROBIN,
+        LEAST_BUSY
+    }
+}
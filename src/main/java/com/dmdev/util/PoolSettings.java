@@ -0,0 +1,62 @@
+package com.dmdev.util;
+
+import lombok.Builder;
+import lombok.Value;
+
+@Value
+@Builder
+public class PoolSettings {
+    private static final String MIN_SIZE_KEY = "db.pool.min-size";
+    private static final String MAX_SIZE_KEY = "db.pool.max-size";
+    private static final String IDLE_TIMEOUT_KEY = "db.pool.idle-timeout-ms";
+    private static final String VALIDATION_TIMEOUT_KEY = "db.pool.validation-timeout-seconds";
+    private static final String LEAK_DETECTION_THRESHOLD_KEY = "db.pool.leak-detection-threshold-ms";
+    private static final String BORROW_TIMEOUT_KEY = "db.pool.borrow-timeout-ms";
+    private static final String HOUSEKEEPING_PERIOD_KEY = "db.pool.housekeeping-period-ms";
+    private static final String STATEMENT_CACHE_SIZE_KEY = "db.pool.statement-cache-size";
+    private static final String PREPARE_THRESHOLD_KEY = "db.pool.prepare-threshold";
+
+    @Builder.Default
+    int minSize = 2;
+    @Builder.Default
+    int maxSize = 10;
+    @Builder.Default
+    long idleTimeoutMillis = 600_000;
+    @Builder.Default
+    int validationTimeoutSeconds = 2;
+    /**
+     * Zero disables leak detection.
+     */
+    @Builder.Default
+    long leakDetectionThresholdMillis = 0;
+    @Builder.Default
+    long borrowTimeoutMillis = 30_000;
+    @Builder.Default
+    long housekeepingPeriodMillis = 5_000;
+    /**
+     * Prepared statements kept open per connection, zero disables the cache.
+     */
+    @Builder.Default
+    int statementCacheSize = 32;
+    /**
+     * PostgreSQL only: executions before the driver switches to a server-side prepared statement,
+     * negative keeps the driver default.
+     */
+    @Builder.Default
+    int prepareThreshold = -1;
+
+    public static PoolSettings fromProperties() {
+        var defaults = PoolSettings.builder().build();
+        return PoolSettings.builder()
+                .minSize(PropertiesUtil.getInt(MIN_SIZE_KEY, defaults.getMinSize()))
+                .maxSize(PropertiesUtil.getInt(MAX_SIZE_KEY, defaults.getMaxSize()))
+                .idleTimeoutMillis(PropertiesUtil.getLong(IDLE_TIMEOUT_KEY, defaults.getIdleTimeoutMillis()))
+                .validationTimeoutSeconds(PropertiesUtil.getInt(VALIDATION_TIMEOUT_KEY, defaults.getValidationTimeoutSeconds()))
+                .leakDetectionThresholdMillis(PropertiesUtil.getLong(LEAK_DETECTION_THRESHOLD_KEY, defaults.getLeakDetectionThresholdMillis()))
+                .borrowTimeoutMillis(PropertiesUtil.getLong(BORROW_TIMEOUT_KEY, defaults.getBorrowTimeoutMillis()))
+                .housekeepingPeriodMillis(PropertiesUtil.getLong(HOUSEKEEPING_PERIOD_KEY, defaults.getHousekeepingPeriodMillis()))
+                .statementCacheSize(PropertiesUtil.getInt(STATEMENT_CACHE_SIZE_KEY, defaults.getStatementCacheSize()))
+                .prepareThreshold(PropertiesUtil.getInt(PREPARE_THRESHOLD_KEY, defaults.getPrepareThreshold()))
+                .build();
+    }
+}
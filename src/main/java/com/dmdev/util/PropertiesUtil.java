@@ -23,4 +23,14 @@ public class PropertiesUtil {
     public static String get(String key) {
         return properties.getProperty(key);
     }
+
+    public static int getInt(String key, int defaultValue) {
+        var value = get(key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        var value = get(key);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
+    }
 }
@@ -0,0 +1,65 @@
+package com.dmdev.util;
+
+import lombok.extern.java.Log;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * Runs shutdown actions in a fixed order from one JVM shutdown hook: components registered with
+ * {@link #register} stop first, latest registered first, while their resources are still open; actions registered
+ * with {@link #registerLast}, such as closing the connection pool, run after all of them.
+ */
+@Log
+public class ShutdownSequence {
+    private static final ShutdownSequence INSTANCE = new ShutdownSequence();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(INSTANCE::run, "shutdown-sequence"));
+    }
+
+    private final Deque<Runnable> actions = new ConcurrentLinkedDeque<>();
+    private final Deque<Runnable> lastActions = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean ran = new AtomicBoolean();
+
+    public static ShutdownSequence getInstance() {
+        return INSTANCE;
+    }
+
+    public void register(Runnable action) {
+        actions.push(action);
+    }
+
+    public void registerLast(Runnable action) {
+        lastActions.push(action);
+    }
+
+    public void unregister(Runnable action) {
+        actions.remove(action);
+        lastActions.remove(action);
+    }
+
+    /**
+     * Runs every registered action once; a failing action is logged and does not stop the ones after it.
+     */
+    public void run() {
+        if (!ran.compareAndSet(false, true)) {
+            return;
+        }
+        runAll(actions);
+        runAll(lastActions);
+    }
+
+    private static void runAll(Deque<Runnable> actions) {
+        Runnable action;
+        while ((action = actions.poll()) != null) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Shutdown action failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.dmdev.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A fixed number of locks, rounded up to a power of two, shared by all keys: equal keys always map to the same
+ * lock, distinct keys only contend when their hashes land on the same stripe. No per-key state is kept.
+ */
+public class StripedLock {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLock(int stripeCount) {
+        if (stripeCount < 1 || stripeCount > 1 << 30) {
+            throw new IllegalArgumentException("Invalid stripe count: " + stripeCount);
+        }
+        var size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    public Lock get(Object key) {
+        return stripes[indexOf(key)];
+    }
+
+    /**
+     * Returns the distinct locks of the keys in stripe order, so callers locking several keys in the returned order
+     * cannot deadlock each other.
+     */
+    public List<Lock> getAll(Collection<?> keys) {
+        TreeMap<Integer, Lock> locks = new TreeMap<>();
+        for (var key : keys) {
+            var index = indexOf(key);
+            locks.put(index, stripes[index]);
+        }
+        return new ArrayList<>(locks.values());
+    }
+
+    public <R> R withLock(Object key, Supplier<R> action) {
+        var lock = get(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int indexOf(Object key) {
+        var hash = Objects.hashCode(key) * 0x9E3779B9;
+        return (hash ^ hash >>> 16) & mask;
+    }
+}
@@ -0,0 +1,86 @@
+package com.dmdev.util;
+
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+@UtilityClass
+public class TransactionManager {
+    private static final ThreadLocal<Connection> CURRENT = new ThreadLocal<>();
+
+    public static boolean isActive() {
+        return CURRENT.get() != null;
+    }
+
+    public static <R> R inTransaction(Supplier<R> work) {
+        return inTransaction(connection -> work.get());
+    }
+
+    public static void inTransaction(Runnable work) {
+        inTransaction(connection -> {
+            work.run();
+            return null;
+        });
+    }
+
+    @SneakyThrows
+    public static <R> R inTransaction(TransactionCallback<R> work) {
+        var current = CURRENT.get();
+        if (current != null) {
+            return work.execute(current);
+        }
+        try (var connection = ConnectionManager.get()) {
+            connection.setAutoCommit(false);
+            CURRENT.set(unclosable(connection));
+            try {
+                var result = work.execute(CURRENT.get());
+                connection.commit();
+                return result;
+            } catch (Throwable e) {
+                rollback(connection, e);
+                throw e;
+            } finally {
+                CURRENT.remove();
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    static Connection currentConnection() {
+        return CURRENT.get();
+    }
+
+    private static void rollback(Connection connection, Throwable cause) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static Connection unclosable(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    @FunctionalInterface
+    public interface TransactionCallback<R> {
+        R execute(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,22 @@
+package com.dmdev.util;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs work as one unit of the store behind a DAO: a JDBC transaction for database DAOs, nothing for stores
+ * without transactions such as the in-memory DAO.
+ */
+@FunctionalInterface
+public interface TransactionRunner {
+    TransactionRunner JDBC = TransactionManager::inTransaction;
+    TransactionRunner NONE = Supplier::get;
+
+    <R> R inTransaction(Supplier<R> work);
+
+    default void inTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+}
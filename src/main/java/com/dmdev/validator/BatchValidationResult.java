@@ -0,0 +1,45 @@
+package com.dmdev.validator;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Errors of a validated batch, kept only for the invalid indexes in ascending order.
+ */
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public class BatchValidationResult {
+    private final int size;
+    private final int[] invalidIndexes;
+    private final List<List<Error>> errors;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasErrors() {
+        return invalidIndexes.length > 0;
+    }
+
+    public int getInvalidCount() {
+        return invalidIndexes.length;
+    }
+
+    public int[] getInvalidIndexes() {
+        return invalidIndexes.clone();
+    }
+
+    public boolean isValid(int index) {
+        return getErrors(index).isEmpty();
+    }
+
+    public List<Error> getErrors(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index %d out of batch of %d".formatted(index, size));
+        }
+        var position = Arrays.binarySearch(invalidIndexes, index);
+        return position >= 0 ? errors.get(position) : List.of();
+    }
+}
@@ -2,16 +2,41 @@ package com.dmdev.validator;
 
 import com.dmdev.dto.CreateSubscriptionDto;
 import com.dmdev.entity.Provider;
+import com.dmdev.metrics.MetricsRegistry;
+import com.dmdev.util.PropertiesUtil;
 import lombok.NoArgsConstructor;
 import org.apache.commons.lang3.StringUtils;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static lombok.AccessLevel.PRIVATE;
 
 @NoArgsConstructor(access = PRIVATE)
 public class CreateSubscriptionValidator implements Validator<CreateSubscriptionDto> {
     private static final CreateSubscriptionValidator INSTANCE = new CreateSubscriptionValidator();
+    private static final String PARALLEL_THRESHOLD_KEY = "validation.parallel-threshold";
+    private static final int PARALLEL_THRESHOLD = PropertiesUtil.getInt(PARALLEL_THRESHOLD_KEY, 8192);
+
+    private static final int INVALID_USER_ID = 1;
+    private static final int INVALID_NAME = 1 << 1;
+    private static final int INVALID_PROVIDER = 1 << 2;
+    private static final int INVALID_EXPIRATION_DATE = 1 << 3;
+    private static final Error[] ERRORS = {
+            Error.of(100, "userId is invalid"),
+            Error.of(101, "name is invalid"),
+            Error.of(102, "provider is invalid"),
+            Error.of(103, "expirationDate is invalid")
+    };
+    private static final String[] ERROR_METRICS = Arrays.stream(ERRORS)
+            .map(error -> "validation.error." + error.getCode())
+            .toArray(String[]::new);
+    private static final List<List<Error>> ERRORS_BY_MASK = errorsByMask();
 
     public static CreateSubscriptionValidator getInstance() {
         return INSTANCE;
@@ -20,18 +45,119 @@ public class CreateSubscriptionValidator implements Validator<CreateSubscription
     @Override
     public ValidationResult validate(CreateSubscriptionDto object) {
         var validationResult = new ValidationResult();
+        var mask = check(object, Instant.now());
+        for (var error : ERRORS_BY_MASK.get(mask)) {
+            validationResult.add(error);
+        }
+        recordErrors(mask);
+        return validationResult;
+    }
+
+    /**
+     * Validates the batch against one clock reading, splitting batches above the parallel threshold across the
+     * common fork-join pool. Valid DTOs share an empty error list, invalid ones share one immutable list per error
+     * combination.
+     */
+    @Override
+    public BatchValidationResult validateAll(List<? extends CreateSubscriptionDto> objects) {
+        try (var ignored = MetricsRegistry.get().startTimer("validation.validateAll")) {
+            List<? extends CreateSubscriptionDto> dtos = objects instanceof RandomAccess ? objects : new ArrayList<>(objects);
+            var masks = new byte[dtos.size()];
+            var now = Instant.now();
+            if (dtos.size() > PARALLEL_THRESHOLD) {
+                ForkJoinPool.commonPool().invoke(new CheckTask(dtos, masks, now, 0, dtos.size()));
+            } else {
+                checkRange(dtos, masks, now, 0, dtos.size());
+            }
+
+            var invalidCount = 0;
+            for (var mask : masks) {
+                if (mask != 0) {
+                    invalidCount++;
+                }
+            }
+            var invalidIndexes = new int[invalidCount];
+            List<List<Error>> errors = new ArrayList<>(invalidCount);
+            for (int i = 0, position = 0; i < masks.length; i++) {
+                if (masks[i] != 0) {
+                    invalidIndexes[position++] = i;
+                    errors.add(ERRORS_BY_MASK.get(masks[i]));
+                    recordErrors(masks[i]);
+                }
+            }
+            MetricsRegistry.get().recordValue("validation.validateAll.size", dtos.size());
+            return new BatchValidationResult(dtos.size(), invalidIndexes, errors);
+        }
+    }
+
+    private static void checkRange(List<? extends CreateSubscriptionDto> dtos, byte[] masks, Instant now, int from, int to) {
+        for (int i = from; i < to; i++) {
+            masks[i] = (byte) check(dtos.get(i), now);
+        }
+    }
+
+    private static int check(CreateSubscriptionDto object, Instant now) {
+        var mask = 0;
         if (object.getUserId() == null) {
-            validationResult.add(Error.of(100, "userId is invalid"));
+            mask |= INVALID_USER_ID;
         }
         if (StringUtils.isBlank(object.getName())) {
-            validationResult.add(Error.of(101, "name is invalid"));
+            mask |= INVALID_NAME;
         }
-        if (Provider.findByNameOpt(object.getProvider()).isEmpty()) {
-            validationResult.add(Error.of(102, "provider is invalid"));
+        if (Provider.findByNameOrNull(object.getProvider()) == null) {
+            mask |= INVALID_PROVIDER;
         }
-        if (object.getExpirationDate() == null || object.getExpirationDate().isBefore(Instant.now())) {
-            validationResult.add(Error.of(103, "expirationDate is invalid"));
+        if (object.getExpirationDate() == null || object.getExpirationDate().isBefore(now)) {
+            mask |= INVALID_EXPIRATION_DATE;
+        }
+        return mask;
+    }
+
+    private static void recordErrors(int mask) {
+        for (int bit = 0; bit < ERRORS.length; bit++) {
+            if ((mask & 1 << bit) != 0) {
+                MetricsRegistry.get().increment(ERROR_METRICS[bit]);
+            }
+        }
+    }
+
+    private static List<List<Error>> errorsByMask() {
+        List<List<Error>> errorsByMask = new ArrayList<>(1 << ERRORS.length);
+        for (int mask = 0; mask < 1 << ERRORS.length; mask++) {
+            List<Error> errors = new ArrayList<>();
+            for (int bit = 0; bit < ERRORS.length; bit++) {
+                if ((mask & 1 << bit) != 0) {
+                    errors.add(ERRORS[bit]);
+                }
+            }
+            errorsByMask.add(List.copyOf(errors));
+        }
+        return List.copyOf(errorsByMask);
+    }
+
+    private static class CheckTask extends RecursiveAction {
+        private final List<? extends CreateSubscriptionDto> dtos;
+        private final byte[] masks;
+        private final Instant now;
+        private final int from;
+        private final int to;
+
+        private CheckTask(List<? extends CreateSubscriptionDto> dtos, byte[] masks, Instant now, int from, int to) {
+            this.dtos = dtos;
+            this.masks = masks;
+            this.now = now;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                checkRange(dtos, masks, now, from, to);
+                return;
+            }
+            var middle = (from + to) >>> 1;
+            invokeAll(new CheckTask(dtos, masks, now, from, middle), new CheckTask(dtos, masks, now, middle, to));
         }
-        return validationResult;
     }
 }
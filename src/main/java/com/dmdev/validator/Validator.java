@@ -1,5 +1,24 @@
 package com.dmdev.validator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 public interface Validator<T> {
     ValidationResult validate(T object);
+
+    default BatchValidationResult validateAll(List<? extends T> objects) {
+        var invalidIndexes = new int[objects.size()];
+        List<List<Error>> errors = new ArrayList<>();
+        var index = 0;
+        for (var object : objects) {
+            var validationResult = validate(object);
+            if (validationResult.hasErrors()) {
+                invalidIndexes[errors.size()] = index;
+                errors.add(List.copyOf(validationResult.getErrors()));
+            }
+            index++;
+        }
+        return new BatchValidationResult(objects.size(), Arrays.copyOf(invalidIndexes, errors.size()), errors);
+    }
 }
@@ -0,0 +1,50 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.integration.IntegrationTestBase;
+import com.dmdev.util.TransactionManager;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CachingSubscriptionDaoIT extends IntegrationTestBase {
+    private static final Clock clock = Clock.fixed(Instant.now(), ZoneId.systemDefault());
+    private final CachingSubscriptionDao subscriptionDao =
+            new CachingSubscriptionDao(SubscriptionDao.getInstance(), 10, Duration.ofHours(1), clock);
+
+    @Test
+    void rolledBackChangesShouldNotBeCached() {
+        Subscription subscription = subscriptionDao.insert(getSubscription());
+
+        assertThrows(IllegalStateException.class, () -> TransactionManager.inTransaction(() -> {
+            subscriptionDao.transitionStatus(subscription.getId(), EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
+            assertThat(subscriptionDao.findById(subscription.getId())).get()
+                    .extracting(Subscription::getStatus).isEqualTo(Status.CANCELED);
+            assertThat(subscriptionDao.findByUserId(subscription.getUserId()))
+                    .extracting(Subscription::getStatus).containsExactly(Status.CANCELED);
+            throw new IllegalStateException();
+        }));
+
+        assertThat(subscriptionDao.findById(subscription.getId())).contains(subscription);
+        assertThat(subscriptionDao.findByUserId(subscription.getUserId())).containsExactly(subscription);
+    }
+
+    private Subscription getSubscription() {
+        return Subscription.builder()
+                .userId(1)
+                .name("Jane")
+                .provider(Provider.APPLE)
+                .expirationDate(Instant.ofEpochSecond(169999999))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,177 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class CachingSubscriptionDaoTest {
+    private static final int SUB_ID = 1;
+    private static final int USER_ID = 10;
+
+    @Mock
+    private SubscriptionDao delegate;
+    @Mock
+    private Clock clock;
+    private CachingSubscriptionDao cachingSubscriptionDao;
+
+    @BeforeEach
+    void setUp() {
+        cachingSubscriptionDao = new CachingSubscriptionDao(delegate, 2, Duration.ofMillis(100), clock);
+    }
+
+    @Test
+    void findByIdShouldHitCacheOnRepeatedLookup() {
+        doReturn(Optional.of(getSubscription())).when(delegate).findById(SUB_ID);
+
+        Optional<Subscription> first = cachingSubscriptionDao.findById(SUB_ID);
+        Optional<Subscription> second = cachingSubscriptionDao.findById(SUB_ID);
+
+        assertThat(second).isEqualTo(first);
+        verify(delegate).findById(SUB_ID);
+        assertEquals(1, cachingSubscriptionDao.getHitCount());
+        assertEquals(1, cachingSubscriptionDao.getMissCount());
+    }
+
+    @Test
+    void cachedEntityShouldNotBeAffectedByCallerMutation() {
+        doReturn(Optional.of(getSubscription())).when(delegate).findById(SUB_ID);
+
+        cachingSubscriptionDao.findById(SUB_ID).get().setStatus(Status.CANCELED);
+
+        assertThat(cachingSubscriptionDao.findById(SUB_ID).get().getStatus()).isEqualTo(Status.ACTIVE);
+    }
+
+    @Test
+    void findByIdShouldReloadAfterTtl() {
+        doReturn(Optional.of(getSubscription())).when(delegate).findById(SUB_ID);
+        doReturn(0L, 50L, 100L).when(clock).millis();
+
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findById(SUB_ID);
+
+        verify(delegate, times(2)).findById(SUB_ID);
+    }
+
+    @Test
+    void findByUserIdsShouldLoadOnlyMissingUsers() {
+        Subscription subscription = getSubscription();
+        doReturn(List.of(subscription)).when(delegate).findByUserId(USER_ID);
+        doReturn(Map.of(USER_ID + 1, List.of())).when(delegate).findByUserIds(List.of(USER_ID + 1));
+        cachingSubscriptionDao.findByUserId(USER_ID);
+
+        Map<Integer, List<Subscription>> actualResult = cachingSubscriptionDao.findByUserIds(List.of(USER_ID, USER_ID + 1));
+        cachingSubscriptionDao.findByUserIds(List.of(USER_ID, USER_ID + 1));
+
+        assertThat(actualResult).containsExactly(Map.entry(USER_ID, List.of(subscription)), Map.entry(USER_ID + 1, List.of()));
+        verify(delegate).findByUserIds(List.of(USER_ID + 1));
+    }
+
+    @Test
+    void updateShouldInvalidateCachedEntries() {
+        Subscription subscription = getSubscription();
+        doReturn(Optional.of(subscription)).when(delegate).findById(SUB_ID);
+        doReturn(List.of(subscription)).when(delegate).findByUserId(USER_ID);
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findByUserId(USER_ID);
+
+        cachingSubscriptionDao.update(subscription);
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findByUserId(USER_ID);
+
+        verify(delegate, times(2)).findById(SUB_ID);
+        verify(delegate, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void deleteShouldInvalidateCachedEntries() {
+        Subscription subscription = getSubscription();
+        doReturn(Optional.of(subscription)).when(delegate).findById(SUB_ID);
+        doReturn(List.of(subscription)).when(delegate).findByUserId(USER_ID);
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findByUserId(USER_ID);
+
+        cachingSubscriptionDao.delete(SUB_ID);
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findByUserId(USER_ID);
+
+        verify(delegate, times(2)).findById(SUB_ID);
+        verify(delegate, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void transitionStatusShouldInvalidateCachedEntries() {
+        Subscription subscription = getSubscription();
+        doReturn(Optional.of(subscription)).when(delegate).findById(SUB_ID);
+        doReturn(List.of(subscription)).when(delegate).findByUserId(USER_ID);
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findByUserId(USER_ID);
+
+        cachingSubscriptionDao.transitionStatus(SUB_ID, EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findByUserId(USER_ID);
+
+        verify(delegate, times(2)).findById(SUB_ID);
+        verify(delegate, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void upsertByUserIdAndNameShouldInvalidateUserEntries() {
+        Subscription subscription = getSubscription();
+        doReturn(List.of(subscription)).when(delegate).findByUserId(USER_ID);
+        cachingSubscriptionDao.findByUserId(USER_ID);
+
+        cachingSubscriptionDao.upsertByUserIdAndName(subscription);
+        cachingSubscriptionDao.findByUserId(USER_ID);
+
+        verify(delegate, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedEntry() {
+        doReturn(Optional.of(getSubscription())).when(delegate).findById(SUB_ID);
+        doReturn(Optional.of(getSubscription().setId(2))).when(delegate).findById(2);
+        doReturn(Optional.of(getSubscription().setId(3))).when(delegate).findById(3);
+
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findById(2);
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findById(3);
+        cachingSubscriptionDao.findById(SUB_ID);
+        cachingSubscriptionDao.findById(2);
+
+        verify(delegate).findById(SUB_ID);
+        verify(delegate, times(2)).findById(2);
+    }
+
+    private static Subscription getSubscription() {
+        return Subscription.builder()
+                .id(SUB_ID)
+                .userId(USER_ID)
+                .name("Jane")
+                .provider(Provider.APPLE)
+                .expirationDate(Instant.parse("2023-10-10T10:15:30.345Z"))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
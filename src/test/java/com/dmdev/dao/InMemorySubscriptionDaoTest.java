@@ -0,0 +1,265 @@
+package com.dmdev.dao;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.exception.OptimisticLockException;
+import com.dmdev.exception.SubscriptionException;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.service.SubscriptionService;
+import com.dmdev.util.TransactionManager;
+import com.dmdev.util.TransactionRunner;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InMemorySubscriptionDaoTest {
+    private static final Clock clock = Clock.fixed(Instant.ofEpochSecond(200000000), ZoneId.systemDefault());
+    private final InMemorySubscriptionDao subscriptionDao = new InMemorySubscriptionDao(4);
+
+    @Test
+    void insertShouldAssignIdAndVersion() {
+        Subscription actualResult = subscriptionDao.insert(getSubscription(1));
+
+        assertThat(actualResult.getId()).isNotNull();
+        assertEquals(0, actualResult.getVersion());
+        assertThat(subscriptionDao.findById(actualResult.getId())).contains(actualResult);
+    }
+
+    @Test
+    void readsShouldReturnCopies() {
+        Subscription subscription = subscriptionDao.insert(getSubscription(1));
+
+        subscriptionDao.findById(subscription.getId()).orElseThrow().setStatus(Status.CANCELED);
+        subscription.setStatus(Status.EXPIRED);
+
+        assertThat(subscriptionDao.findById(subscription.getId())).get()
+                .extracting(Subscription::getStatus).isEqualTo(Status.ACTIVE);
+    }
+
+    @Test
+    void insertShouldFailForDuplicateUserIdAndName() {
+        subscriptionDao.insert(getSubscription(1));
+
+        assertThrows(SQLException.class, () -> subscriptionDao.insert(getSubscription(1).setProvider(Provider.GOOGLE)));
+    }
+
+    @Test
+    void insertAllShouldInsertNothingWhenOneIsDuplicate() {
+        assertThrows(SQLException.class, () -> subscriptionDao.insertAll(List.of(getSubscription(1), getSubscription(2), getSubscription(1))));
+
+        assertThat(subscriptionDao.findAll()).isEmpty();
+    }
+
+    @Test
+    void updateShouldMoveSecondaryIndexes() {
+        Subscription subscription = subscriptionDao.insert(getSubscription(1));
+
+        subscriptionDao.update(subscription.setUserId(2).setName("Jack"));
+
+        assertEquals(1, subscription.getVersion());
+        assertThat(subscriptionDao.findByUserId(1)).isEmpty();
+        assertThat(subscriptionDao.findByUserId(2)).containsExactly(subscription);
+        subscriptionDao.insert(getSubscription(1));
+        assertThat(subscriptionDao.findAll()).hasSize(2);
+    }
+
+    @Test
+    void updateShouldFailForStaleVersion() {
+        Subscription subscription = subscriptionDao.insert(getSubscription(1));
+        subscriptionDao.update(subscriptionDao.findById(subscription.getId()).orElseThrow().setStatus(Status.CANCELED));
+
+        assertThrows(OptimisticLockException.class, () -> subscriptionDao.update(subscription.setStatus(Status.EXPIRED)));
+    }
+
+    @Test
+    void updateAllShouldUpdateNothingWhenOneIsStale() {
+        List<Subscription> subscriptions = subscriptionDao.insertAll(List.of(getSubscription(1), getSubscription(2)));
+        List<Subscription> stored = subscriptionDao.findAll();
+        subscriptions.get(1).setVersion(5);
+
+        assertThrows(OptimisticLockException.class,
+                () -> subscriptionDao.updateAll(List.of(subscriptions.get(0).setStatus(Status.CANCELED), subscriptions.get(1))));
+
+        assertThat(subscriptionDao.findAll()).isEqualTo(stored);
+    }
+
+    @Test
+    void deleteShouldReleaseUserIdAndName() {
+        Subscription subscription = subscriptionDao.insert(getSubscription(1));
+
+        assertTrue(subscriptionDao.delete(subscription.getId()));
+        assertFalse(subscriptionDao.delete(subscription.getId()));
+
+        assertThat(subscriptionDao.findByUserId(1)).isEmpty();
+        subscriptionDao.insert(getSubscription(1));
+    }
+
+    @Test
+    void findByUserIdsShouldKeepRequestOrder() {
+        Subscription subscription1 = subscriptionDao.insert(getSubscription(1));
+        Subscription subscription2 = subscriptionDao.insert(getSubscription(1).setName("Jack"));
+        Subscription subscription3 = subscriptionDao.insert(getSubscription(3));
+
+        Map<Integer, List<Subscription>> actualResult = subscriptionDao.findByUserIds(List.of(3, 2, 1, 3));
+
+        assertThat(actualResult).containsExactly(
+                Map.entry(3, List.of(subscription3)),
+                Map.entry(2, List.of()),
+                Map.entry(1, List.of(subscription1, subscription2)));
+    }
+
+    @Test
+    void findPageShouldWalkAllSubscriptionsInIdOrder() {
+        List<Subscription> subscriptions = subscriptionDao.insertAll(List.of(getSubscription(1), getSubscription(2), getSubscription(3)));
+
+        Page<Integer, Subscription> firstPage = subscriptionDao.findPage(null, 2);
+        Page<Integer, Subscription> lastPage = subscriptionDao.findPage(firstPage.getNextCursor(), 2);
+
+        assertThat(firstPage.getContent()).containsExactly(subscriptions.get(0), subscriptions.get(1));
+        assertThat(lastPage.getContent()).containsExactly(subscriptions.get(2));
+        assertFalse(lastPage.hasNext());
+    }
+
+    @Test
+    void upsertByUserIdAndNameShouldUpdateExistingSubscription() {
+        Subscription existing = subscriptionDao.insert(getSubscription(1).setStatus(Status.CANCELED));
+
+        Subscription actualResult = subscriptionDao.upsertByUserIdAndName(getSubscription(1));
+
+        assertEquals(existing.getId(), actualResult.getId());
+        assertEquals(1, actualResult.getVersion());
+        assertThat(subscriptionDao.findAll()).containsExactly(actualResult);
+    }
+
+    @Test
+    void upsertByUserIdAndNameShouldFailForAnotherProvider() {
+        subscriptionDao.insert(getSubscription(1));
+
+        assertThrows(SQLException.class, () -> subscriptionDao.upsertByUserIdAndName(getSubscription(1).setProvider(Provider.GOOGLE)));
+    }
+
+    @Test
+    void upsertAllByUserIdAndNameShouldReturnRejectedSubscriptions() {
+        subscriptionDao.insert(getSubscription(1));
+        Subscription conflicting = getSubscription(1).setProvider(Provider.GOOGLE);
+
+        List<Subscription> actualResult = subscriptionDao.upsertAllByUserIdAndName(List.of(conflicting, getSubscription(2)));
+
+        assertThat(actualResult).containsExactly(conflicting);
+        assertThat(subscriptionDao.findAll()).hasSize(2);
+    }
+
+    @Test
+    void transitionStatusShouldOnlyChangeExpectedStatuses() {
+        Subscription subscription = subscriptionDao.insert(getSubscription(1));
+
+        assertTrue(subscriptionDao.transitionStatus(subscription.getId(), EnumSet.of(Status.ACTIVE), Status.CANCELED, null));
+        assertFalse(subscriptionDao.transitionStatus(subscription.getId(), EnumSet.of(Status.ACTIVE), Status.EXPIRED, Instant.EPOCH));
+
+        assertThat(subscriptionDao.findById(subscription.getId())).contains(subscription.setStatus(Status.CANCELED).setVersion(1));
+    }
+
+    @Test
+    void expireDueBeforeShouldExpireActiveDueSubscriptionsInIdOrder() {
+        Instant dueBefore = Instant.ofEpochSecond(200000000);
+        Instant expiredAt = Instant.ofEpochSecond(300000000);
+        Subscription due1 = subscriptionDao.insert(getSubscription(1).setExpirationDate(Instant.ofEpochSecond(150000000)));
+        Subscription due2 = subscriptionDao.insert(getSubscription(2));
+        Subscription due3 = subscriptionDao.insert(getSubscription(3));
+        subscriptionDao.insert(getSubscription(4).setExpirationDate(dueBefore));
+        subscriptionDao.insert(getSubscription(5).setStatus(Status.CANCELED));
+
+        List<Integer> firstChunk = subscriptionDao.expireDueBefore(dueBefore, expiredAt, 2);
+        List<Integer> secondChunk = subscriptionDao.expireDueBefore(dueBefore, expiredAt, 2);
+
+        assertThat(firstChunk).containsExactly(due1.getId(), due2.getId());
+        assertThat(secondChunk).containsExactly(due3.getId());
+        assertThat(subscriptionDao.findById(due1.getId())).contains(due1.setStatus(Status.EXPIRED).setExpirationDate(expiredAt).setVersion(1));
+    }
+
+    @Test
+    void concurrentUpsertsShouldKeepUserIdAndNameUnique() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int userId = 0; userId < 200; userId++) {
+                        subscriptionDao.upsertByUserIdAndName(getSubscription(userId));
+                    }
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(subscriptionDao.findAll()).hasSize(200);
+        assertThat(subscriptionDao.findAll()).extracting(Subscription::getVersion).containsOnly(7);
+    }
+
+    @Test
+    void subscriptionServiceShouldRunAgainstInMemoryDao() {
+        SubscriptionService subscriptionService = new SubscriptionService(subscriptionDao,
+                CreateSubscriptionMapper.getInstance(), CreateSubscriptionValidator.getInstance(), clock);
+        Subscription subscription = subscriptionService.upsert(CreateSubscriptionDto.builder()
+                .userId(1)
+                .name("Jane")
+                .provider(Provider.APPLE.name())
+                .expirationDate(Instant.now().plusSeconds(3600))
+                .build());
+
+        subscriptionService.cancel(subscription.getId());
+
+        assertThrows(SubscriptionException.class, () -> subscriptionService.cancel(subscription.getId()));
+        assertThrows(IllegalArgumentException.class, () -> subscriptionService.cancel(Integer.MAX_VALUE));
+        assertThat(subscriptionDao.findById(subscription.getId())).get()
+                .extracting(Subscription::getStatus).isEqualTo(Status.CANCELED);
+    }
+
+    @Test
+    void subscriptionServiceTransactionsShouldNotUseDatabase() {
+        SubscriptionService subscriptionService = new SubscriptionService(subscriptionDao,
+                CreateSubscriptionMapper.getInstance(), CreateSubscriptionValidator.getInstance(), clock);
+
+        Subscription actualResult = subscriptionService.inTransaction(() -> {
+            assertFalse(TransactionManager.isActive());
+            return subscriptionDao.insert(getSubscription(1));
+        });
+
+        assertThat(subscriptionDao.findById(actualResult.getId())).isPresent();
+        assertSame(TransactionRunner.NONE, subscriptionDao.getTransactionRunner());
+    }
+
+    private Subscription getSubscription(Integer userId) {
+        return Subscription.builder()
+                .userId(userId)
+                .name("Jane")
+                .provider(Provider.APPLE)
+                .expirationDate(Instant.ofEpochSecond(169999999))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.dmdev.dao;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.entity.SubscriptionEvent;
+import com.dmdev.entity.SubscriptionEventType;
+import com.dmdev.integration.IntegrationTestBase;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.service.SubscriptionService;
+import com.dmdev.util.TransactionManager;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OutboxSubscriptionDaoIT extends IntegrationTestBase {
+    private static final Clock clock = Clock.fixed(Instant.now().truncatedTo(ChronoUnit.MILLIS), ZoneId.systemDefault());
+    private final SubscriptionEventDao eventDao = SubscriptionEventDao.getInstance();
+    private final OutboxSubscriptionDao subscriptionDao = new OutboxSubscriptionDao(SubscriptionDao.getInstance(), eventDao, clock);
+
+    @Test
+    void shouldAppendEventForEveryWrite() {
+        var subscription = subscriptionDao.insert(getSubscription(1, "Jane"));
+        subscription.setProvider(Provider.GOOGLE);
+        subscriptionDao.update(subscription);
+        subscriptionDao.transitionStatus(subscription.getId(), EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
+        subscriptionDao.delete(subscription.getId());
+
+        List<SubscriptionEvent> actualResult = eventDao.findAfter(0, 10);
+
+        assertThat(actualResult).extracting(SubscriptionEvent::getType).containsExactly(
+                SubscriptionEventType.CREATED, SubscriptionEventType.UPDATED,
+                SubscriptionEventType.CANCELED, SubscriptionEventType.DELETED);
+        assertThat(actualResult).extracting(event -> event.getSubscription().getVersion()).containsExactly(0, 1, 2, 2);
+        var deleted = actualResult.get(3);
+        assertEquals(subscription.getId(), deleted.getSubscription().getId());
+        assertEquals(Provider.GOOGLE, deleted.getSubscription().getProvider());
+        assertEquals(Status.CANCELED, deleted.getSubscription().getStatus());
+        assertEquals(clock.instant(), deleted.getOccurredAt());
+    }
+
+    @Test
+    void serviceWritesShouldAppendEventsWithResultingSnapshots() {
+        var subscriptionService = new SubscriptionService(subscriptionDao,
+                CreateSubscriptionMapper.getInstance(), CreateSubscriptionValidator.getInstance(), clock);
+        var subscription = subscriptionService.upsert(CreateSubscriptionDto.builder()
+                .userId(1)
+                .name("Jane")
+                .provider(Provider.APPLE.name())
+                .expirationDate(clock.instant().plus(1, ChronoUnit.DAYS))
+                .build());
+
+        subscriptionService.cancel(subscription.getId());
+        subscriptionService.expire(subscription.getId());
+
+        assertThat(eventDao.findAfter(0, 10))
+                .extracting(event -> event.getType() + ":" + event.getSubscription().getStatus())
+                .containsExactly("CREATED:ACTIVE", "CANCELED:CANCELED", "EXPIRED:EXPIRED");
+    }
+
+    @Test
+    void deleteShouldNotAppendEventWhenSubscriptionIsMissing() {
+        assertFalse(subscriptionDao.delete(Integer.MAX_VALUE));
+
+        assertThat(eventDao.findAfter(0, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldNotAppendEventWhenTransitionIsRejected() {
+        var subscription = subscriptionDao.insert(getSubscription(1, "Jane"));
+
+        subscriptionDao.transitionStatus(subscription.getId(), EnumSet.of(Status.CANCELED), Status.EXPIRED, clock.instant());
+
+        assertThat(eventDao.findAfter(0, 10)).extracting(SubscriptionEvent::getType)
+                .containsExactly(SubscriptionEventType.CREATED);
+    }
+
+    @Test
+    void upsertsShouldAppendCreatedOrUpdated() {
+        subscriptionDao.upsertByUserIdAndName(getSubscription(1, "Jane"));
+        subscriptionDao.upsertByUserIdAndName(getSubscription(1, "Jane"));
+        var conflicting = getSubscription(1, "Jane").setProvider(Provider.GOOGLE);
+
+        var rejected = subscriptionDao.upsertAllByUserIdAndName(List.of(getSubscription(2, "Jane"), conflicting));
+
+        assertThat(rejected).containsExactly(conflicting);
+        assertThat(eventDao.findAfter(0, 10))
+                .extracting(event -> event.getType() + ":" + event.getSubscription().getUserId())
+                .containsExactly("CREATED:1", "UPDATED:1", "CREATED:2");
+    }
+
+    @Test
+    void expireDueBeforeShouldAppendExpiredForExpiredSubscriptions() {
+        var subscriptions = subscriptionDao.insertAll(List.of(getSubscription(1, "Jane"), getSubscription(2, "Jane")));
+        var lastOffset = eventDao.findAfter(0, 10).get(1).getId();
+
+        var expiredIds = subscriptionDao.expireDueBefore(Instant.ofEpochSecond(170000000), clock.instant(), 10);
+
+        assertThat(expiredIds).containsExactlyInAnyOrder(subscriptions.get(0).getId(), subscriptions.get(1).getId());
+        assertThat(eventDao.findAfter(lastOffset, 10))
+                .allMatch(event -> event.getType() == SubscriptionEventType.EXPIRED
+                                   && event.getSubscription().getStatus() == Status.EXPIRED)
+                .hasSize(2);
+    }
+
+    @Test
+    void shouldRollbackEventsTogetherWithWrites() {
+        assertThrows(IllegalStateException.class, () -> TransactionManager.inTransaction(() -> {
+            subscriptionDao.insert(getSubscription(1, "Jane"));
+            throw new IllegalStateException();
+        }));
+
+        assertThat(subscriptionDao.findAll()).isEmpty();
+        assertThat(eventDao.findAfter(0, 10)).isEmpty();
+    }
+
+    @Test
+    void findAfterShouldReadIncrementallyByOffset() {
+        subscriptionDao.insertAll(List.of(getSubscription(1, "Jane"), getSubscription(2, "Jane"), getSubscription(3, "Jane")));
+
+        var firstBatch = eventDao.findAfter(0, 2);
+        var secondBatch = eventDao.findAfter(firstBatch.get(1).getId(), 2);
+
+        assertThat(firstBatch).extracting(event -> event.getSubscription().getUserId()).containsExactly(1, 2);
+        assertThat(secondBatch).extracting(event -> event.getSubscription().getUserId()).containsExactly(3);
+        assertEquals(2, eventDao.deleteUpTo(firstBatch.get(1).getId()));
+        assertThat(eventDao.findAfter(0, 10)).containsExactlyElementsOf(secondBatch);
+    }
+
+    private Subscription getSubscription(Integer userId, String name) {
+        return Subscription.builder()
+                .userId(userId)
+                .name(name)
+                .provider(Provider.APPLE)
+                .expirationDate(Instant.ofEpochSecond(169999999))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
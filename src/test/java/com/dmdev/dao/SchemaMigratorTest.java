@@ -0,0 +1,101 @@
+package com.dmdev.dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SchemaMigratorTest {
+    private static final String URL = "jdbc:h2:mem:migration_test";
+
+    private Connection connection;
+
+    @BeforeEach
+    void openConnection() throws SQLException {
+        connection = DriverManager.getConnection(URL, "sa", "");
+    }
+
+    @AfterEach
+    void closeConnection() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void shouldApplyAllMigrationsToEmptyDatabase() throws SQLException {
+        SchemaMigrator migrator = SchemaMigrator.getInstance();
+
+        int actualResult = migrator.migrate(connection);
+
+        assertEquals(4, actualResult);
+        assertEquals(4, migrator.getCurrentVersion(connection));
+        assertThat(getColumns("SUBSCRIPTION")).contains("ID", "USER_ID", "NAME", "PROVIDER", "EXPIRATION_DATE", "STATUS", "VERSION");
+        assertThat(getIndexes("SUBSCRIPTION"))
+                .contains("SUBSCRIPTION_STATUS_EXPIRATION_DATE_IDX", "SUBSCRIPTION_USER_ID_ID_IDX");
+        assertThat(getColumns("SUBSCRIPTION_EVENT"))
+                .contains("ID", "TYPE", "OCCURRED_AT", "SUBSCRIPTION_ID", "USER_ID", "NAME", "STATUS", "VERSION");
+    }
+
+    @Test
+    void shouldBeIdempotent() throws SQLException {
+        SchemaMigrator migrator = SchemaMigrator.getInstance();
+        migrator.migrate(connection);
+
+        assertEquals(0, migrator.migrate(connection));
+        assertEquals(4, migrator.getCurrentVersion(connection));
+    }
+
+    @Test
+    void shouldStopAtTargetVersionAndContinueLater() throws SQLException {
+        SchemaMigrator migrator = SchemaMigrator.getInstance();
+
+        assertEquals(2, migrator.migrate(connection, 2));
+        assertThat(getIndexes("SUBSCRIPTION")).doesNotContain("SUBSCRIPTION_STATUS_EXPIRATION_DATE_IDX");
+
+        assertEquals(2, migrator.migrate(connection));
+        assertThat(getIndexes("SUBSCRIPTION")).contains("SUBSCRIPTION_STATUS_EXPIRATION_DATE_IDX");
+    }
+
+    @Test
+    void shouldRollbackVersionWhenMigrationFails() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(List.of(
+                Migration.of(1, "broken", List.of(), List.of("CREATE TABLE broken (id INT)", "NOT SQL"))));
+
+        assertThrows(SQLException.class, () -> migrator.migrate(connection));
+        assertEquals(0, migrator.getCurrentVersion(connection));
+    }
+
+    @Test
+    void shouldRejectDuplicateVersions() {
+        List<Migration> migrations = List.of(Migration.of(1, "a", List.of(), List.of()), Migration.of(1, "b", List.of(), List.of()));
+
+        assertThrows(IllegalArgumentException.class, () -> new SchemaMigrator(migrations));
+    }
+
+    private List<String> getColumns(String table) throws SQLException {
+        return query("SELECT column_name FROM information_schema.columns WHERE table_name = '" + table + "'");
+    }
+
+    private List<String> getIndexes(String table) throws SQLException {
+        return query("SELECT index_name FROM information_schema.indexes WHERE table_name = '" + table + "'");
+    }
+
+    private List<String> query(String sql) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (var statement = connection.createStatement();
+             var resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                values.add(resultSet.getString(1));
+            }
+        }
+        return values;
+    }
+}
@@ -3,18 +3,27 @@ package com.dmdev.dao;
 import com.dmdev.entity.Provider;
 import com.dmdev.entity.Status;
 import com.dmdev.entity.Subscription;
+import com.dmdev.exception.OptimisticLockException;
 import com.dmdev.integration.IntegrationTestBase;
+import com.dmdev.util.BatchLoader;
 import org.junit.jupiter.api.Test;
 
+import java.sql.SQLException;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class SubscriptionDaoIT extends IntegrationTestBase {
@@ -37,6 +46,28 @@ class SubscriptionDaoIT extends IntegrationTestBase {
         assertThat(subscriptionIds).contains(subscription1.getId(), subscription2.getId(), subscription3.getId());
     }
 
+    @Test
+    void streamAll() {
+        List<Subscription> subscriptions = subscriptionDao.insertAll(List.of(getSubscription(1), getSubscription(2), getSubscription(3)));
+
+        List<Subscription> actualResult;
+        try (Stream<Subscription> stream = subscriptionDao.streamAll()) {
+            actualResult = stream.toList();
+        }
+
+        assertThat(actualResult).containsExactlyInAnyOrderElementsOf(subscriptions);
+    }
+
+    @Test
+    void forEach() {
+        List<Subscription> subscriptions = subscriptionDao.insertAll(List.of(getSubscription(1), getSubscription(2)));
+        List<Subscription> actualResult = new ArrayList<>();
+
+        subscriptionDao.forEach(actualResult::add);
+
+        assertThat(actualResult).containsExactlyInAnyOrderElementsOf(subscriptions);
+    }
+
     @Test
     void findById() {
         Subscription subscription = subscriptionDao.insert(getSubscription(1));
@@ -74,6 +105,69 @@ class SubscriptionDaoIT extends IntegrationTestBase {
 
         Subscription updatedSubscription = subscriptionDao.findById(subscription.getId()).get();
         assertThat(updatedSubscription).isEqualTo(subscription);
+        assertThat(updatedSubscription.getVersion()).isEqualTo(1);
+    }
+
+    @Test
+    void updateShouldFailForStaleVersion() {
+        Subscription subscription = subscriptionDao.insert(getSubscription(1));
+        Subscription stale = subscriptionDao.findById(subscription.getId()).get();
+        subscriptionDao.update(subscription.setStatus(Status.CANCELED));
+
+        assertThrows(OptimisticLockException.class, () -> subscriptionDao.update(stale.setStatus(Status.EXPIRED)));
+
+        assertThat(subscriptionDao.findById(subscription.getId())).contains(subscription);
+    }
+
+    @Test
+    void updateAllShouldRollbackWholeBatchForStaleVersion() {
+        List<Subscription> subscriptions = subscriptionDao.insertAll(List.of(getSubscription(1), getSubscription(2)));
+        Subscription stale = subscriptionDao.findById(subscriptions.get(1).getId()).get();
+        subscriptionDao.update(subscriptions.get(1).setStatus(Status.CANCELED));
+
+        assertThrows(OptimisticLockException.class,
+                () -> subscriptionDao.updateAll(List.of(subscriptions.get(0).setName("new_name"), stale.setName("new_name"))));
+
+        assertThat(subscriptionDao.findAll()).map(Subscription::getName).containsOnly("Jane");
+    }
+
+    @Test
+    void transitionStatusShouldUpdateWhenStatusIsExpected() {
+        Subscription subscription = subscriptionDao.insert(getSubscription(1));
+        Instant expiredAt = Instant.ofEpochSecond(300000000);
+
+        boolean actualResult = subscriptionDao.transitionStatus(
+                subscription.getId(), EnumSet.of(Status.ACTIVE, Status.CANCELED), Status.EXPIRED, expiredAt);
+
+        assertTrue(actualResult);
+        assertThat(subscriptionDao.findById(subscription.getId()))
+                .contains(subscription.setStatus(Status.EXPIRED).setExpirationDate(expiredAt).setVersion(1));
+    }
+
+    @Test
+    void transitionStatusShouldKeepExpirationDateWhenNotGiven() {
+        Subscription subscription = subscriptionDao.insert(getSubscription(1));
+
+        boolean actualResult = subscriptionDao.transitionStatus(subscription.getId(), EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
+
+        assertTrue(actualResult);
+        assertThat(subscriptionDao.findById(subscription.getId()))
+                .contains(subscription.setStatus(Status.CANCELED).setVersion(1));
+    }
+
+    @Test
+    void transitionStatusShouldNotUpdateWhenStatusIsNotExpected() {
+        Subscription subscription = subscriptionDao.insert(getSubscription(1).setStatus(Status.EXPIRED));
+
+        boolean actualResult = subscriptionDao.transitionStatus(subscription.getId(), EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
+
+        assertFalse(actualResult);
+        assertThat(subscriptionDao.findById(subscription.getId())).contains(subscription);
+    }
+
+    @Test
+    void transitionStatusShouldNotUpdateNotExistingSubscription() {
+        assertFalse(subscriptionDao.transitionStatus(999, EnumSet.of(Status.ACTIVE), Status.CANCELED, null));
     }
 
     @Test
@@ -84,6 +178,94 @@ class SubscriptionDaoIT extends IntegrationTestBase {
         assertNotNull(actualResult.getId());
     }
 
+    @Test
+    void upsertByUserIdAndNameShouldInsertNewSubscription() {
+        Subscription actualResult = subscriptionDao.upsertByUserIdAndName(getSubscription(1));
+
+        assertNotNull(actualResult.getId());
+        assertThat(subscriptionDao.findById(actualResult.getId())).contains(actualResult);
+    }
+
+    @Test
+    void upsertByUserIdAndNameShouldUpdateExistingSubscription() {
+        Subscription existing = subscriptionDao.insert(getSubscription(1).setStatus(Status.CANCELED));
+        Subscription subscription = getSubscription(1).setExpirationDate(Instant.ofEpochSecond(269999999));
+
+        Subscription actualResult = subscriptionDao.upsertByUserIdAndName(subscription);
+
+        assertThat(actualResult.getId()).isEqualTo(existing.getId());
+        assertThat(subscriptionDao.findAll()).containsExactly(subscription);
+    }
+
+    @Test
+    void upsertByUserIdAndNameShouldFailForAnotherProvider() {
+        subscriptionDao.insert(getSubscription(1));
+
+        assertThrows(SQLException.class, () -> subscriptionDao.upsertByUserIdAndName(getSubscription(1).setProvider(Provider.GOOGLE)));
+    }
+
+    @Test
+    void upsertAllByUserIdAndNameShouldReturnRejectedSubscriptions() {
+        Subscription existing = subscriptionDao.insert(getSubscription(1));
+        Subscription updated = getSubscription(1).setStatus(Status.CANCELED);
+        Subscription inserted = getSubscription(2);
+        Subscription conflicting = getSubscription(3).setProvider(Provider.GOOGLE);
+        subscriptionDao.insert(getSubscription(3));
+
+        List<Subscription> actualResult = subscriptionDao.upsertAllByUserIdAndName(List.of(updated, inserted, conflicting));
+
+        assertThat(actualResult).containsExactly(conflicting);
+        assertThat(subscriptionDao.findById(existing.getId())).get()
+                .extracting(Subscription::getStatus, Subscription::getVersion).containsExactly(Status.CANCELED, 1);
+        assertThat(subscriptionDao.findByUserId(2)).hasSize(1);
+        assertThat(subscriptionDao.findByUserId(3)).extracting(Subscription::getProvider).containsExactly(Provider.APPLE);
+    }
+
+    @Test
+    void expireDueBefore() {
+        Instant dueBefore = Instant.ofEpochSecond(200000000);
+        Instant expiredAt = Instant.ofEpochSecond(300000000);
+        Subscription due = subscriptionDao.insert(getSubscription(1));
+        Subscription notDue = subscriptionDao.insert(getSubscription(2).setExpirationDate(Instant.ofEpochSecond(269999999)));
+        Subscription canceled = subscriptionDao.insert(getSubscription(3).setStatus(Status.CANCELED));
+
+        List<Integer> actualResult = subscriptionDao.expireDueBefore(dueBefore, expiredAt, 10);
+
+        assertThat(actualResult).containsExactly(due.getId());
+        assertThat(subscriptionDao.findById(due.getId())).contains(due.setStatus(Status.EXPIRED).setExpirationDate(expiredAt).setVersion(1));
+        assertThat(subscriptionDao.findById(notDue.getId())).contains(notDue);
+        assertThat(subscriptionDao.findById(canceled.getId())).contains(canceled);
+    }
+
+    @Test
+    void expireIfDueShouldExpireOnlyActiveSubscriptionDueAtGivenInstant() {
+        Instant expiredAt = Instant.ofEpochSecond(300000000);
+        Subscription due = subscriptionDao.insert(getSubscription(1));
+        Subscription renewed = subscriptionDao.insert(getSubscription(2).setExpirationDate(Instant.ofEpochSecond(269999999)));
+        Subscription canceled = subscriptionDao.insert(getSubscription(3).setStatus(Status.CANCELED));
+
+        assertTrue(subscriptionDao.expireIfDue(due.getId(), due.getExpirationDate(), expiredAt));
+        assertFalse(subscriptionDao.expireIfDue(due.getId(), due.getExpirationDate(), expiredAt));
+        assertFalse(subscriptionDao.expireIfDue(renewed.getId(), Instant.ofEpochSecond(200000000), expiredAt));
+        assertFalse(subscriptionDao.expireIfDue(canceled.getId(), Instant.ofEpochSecond(200000000), expiredAt));
+        assertFalse(subscriptionDao.expireIfDue(Integer.MAX_VALUE, Instant.ofEpochSecond(200000000), expiredAt));
+
+        assertThat(subscriptionDao.findById(due.getId())).contains(due.setStatus(Status.EXPIRED).setExpirationDate(expiredAt).setVersion(1));
+        assertThat(subscriptionDao.findById(renewed.getId())).contains(renewed);
+        assertThat(subscriptionDao.findById(canceled.getId())).contains(canceled);
+    }
+
+    @Test
+    void findActiveExpiringBefore() {
+        Subscription expiring = subscriptionDao.insert(getSubscription(1));
+        subscriptionDao.insert(getSubscription(2).setExpirationDate(Instant.ofEpochSecond(269999999)));
+        subscriptionDao.insert(getSubscription(3).setStatus(Status.CANCELED));
+
+        List<Subscription> actualResult = subscriptionDao.findActiveExpiringBefore(Instant.ofEpochSecond(200000000));
+
+        assertThat(actualResult).containsExactly(expiring);
+    }
+
     @Test
     void findByUserId() {
         Subscription subscription = subscriptionDao.insert(getSubscription(1));
@@ -98,6 +280,112 @@ class SubscriptionDaoIT extends IntegrationTestBase {
         assertThat(subsByUserId).contains(subscription.getUserId());
     }
 
+    @Test
+    void findByUserIds() {
+        Subscription first = subscriptionDao.insert(getSubscription(1));
+        Subscription second = subscriptionDao.insert(getSubscription(2));
+        Subscription third = subscriptionDao.insert(getSubscription(2).setName("Ivan"));
+        Subscription fourth = subscriptionDao.insert(getSubscription(4));
+
+        Map<Integer, List<Subscription>> actualResult = subscriptionDao.findByUserIds(List.of(4, 2, 3, 1, 2));
+
+        assertThat(actualResult).containsExactly(
+                Map.entry(4, List.of(fourth)),
+                Map.entry(2, List.of(second, third)),
+                Map.entry(3, List.of()),
+                Map.entry(1, List.of(first)));
+    }
+
+    @Test
+    void findByUserIdsShouldNotQueryForEmptyUserIds() {
+        assertThat(subscriptionDao.findByUserIds(List.of())).isEmpty();
+    }
+
+    @Test
+    void byUserIdLoaderShouldResolveLookupsWithBatchedQuery() {
+        Subscription first = subscriptionDao.insert(getSubscription(1));
+        Subscription second = subscriptionDao.insert(getSubscription(2));
+        BatchLoader<Integer, List<Subscription>> loader = subscriptionDao.newByUserIdLoader();
+
+        CompletableFuture<List<Subscription>> firstLookup = loader.load(1);
+        CompletableFuture<List<Subscription>> secondLookup = loader.load(2);
+        loader.dispatch();
+
+        assertThat(firstLookup.join()).containsExactly(first);
+        assertThat(secondLookup.join()).containsExactly(second);
+    }
+
+    @Test
+    void insertAll() {
+        List<Subscription> subscriptions = List.of(getSubscription(1), getSubscription(2), getSubscription(3));
+
+        List<Subscription> actualResult = subscriptionDao.insertAll(subscriptions);
+
+        assertThat(actualResult).hasSize(3).allSatisfy(subscription -> assertNotNull(subscription.getId()));
+        assertThat(actualResult).map(Subscription::getId).doesNotHaveDuplicates();
+        assertThat(subscriptionDao.findAll()).containsExactlyInAnyOrderElementsOf(actualResult);
+    }
+
+    @Test
+    void insertAllShouldRollbackWholeBatchOnFailure() {
+        List<Subscription> subscriptions = List.of(getSubscription(1), getSubscription(2), getSubscription(2));
+
+        assertThrows(SQLException.class, () -> subscriptionDao.insertAll(subscriptions));
+
+        assertThat(subscriptionDao.findAll()).isEmpty();
+    }
+
+    @Test
+    void updateAll() {
+        List<Subscription> subscriptions = subscriptionDao.insertAll(List.of(getSubscription(1), getSubscription(2), getSubscription(3)));
+        subscriptions.forEach(subscription -> subscription.setStatus(Status.CANCELED));
+
+        subscriptionDao.updateAll(subscriptions);
+
+        assertThat(subscriptionDao.findAll()).map(Subscription::getStatus).containsOnly(Status.CANCELED);
+    }
+
+    @Test
+    void upsertAll() {
+        Subscription existing = subscriptionDao.insert(getSubscription(1));
+        existing.setName("new_name");
+        Subscription created = getSubscription(2);
+
+        List<Subscription> actualResult = subscriptionDao.upsertAll(List.of(existing, created));
+
+        assertThat(actualResult).containsExactly(existing, created);
+        assertNotNull(created.getId());
+        assertThat(subscriptionDao.findAll()).containsExactlyInAnyOrder(existing, created);
+    }
+
+    @Test
+    void findPage() {
+        List<Subscription> subscriptions = subscriptionDao.insertAll(List.of(getSubscription(1), getSubscription(2), getSubscription(3)));
+
+        Page<Integer, Subscription> firstPage = subscriptionDao.findPage(null, 2);
+        Page<Integer, Subscription> lastPage = subscriptionDao.findPage(firstPage.getNextCursor(), 2);
+
+        assertThat(firstPage.getContent()).containsExactly(subscriptions.get(0), subscriptions.get(1));
+        assertThat(firstPage.getNextCursor()).isEqualTo(subscriptions.get(1).getId());
+        assertThat(lastPage.getContent()).containsExactly(subscriptions.get(2));
+        assertFalse(lastPage.hasNext());
+    }
+
+    @Test
+    void findByUserIdPage() {
+        Subscription first = getSubscription(1);
+        Subscription second = getSubscription(1).setName("Joe");
+        subscriptionDao.insertAll(List.of(first, getSubscription(2), second));
+
+        Page<Integer, Subscription> firstPage = subscriptionDao.findByUserIdPage(1, null, 1);
+        Page<Integer, Subscription> lastPage = subscriptionDao.findByUserIdPage(1, firstPage.getNextCursor(), 1);
+
+        assertThat(firstPage.getContent()).containsExactly(first);
+        assertTrue(firstPage.hasNext());
+        assertThat(lastPage.getContent()).containsExactly(second);
+        assertFalse(lastPage.hasNext());
+    }
+
     private Subscription getSubscription(Integer userId) {
         return Subscription.builder()
                 .userId(userId)
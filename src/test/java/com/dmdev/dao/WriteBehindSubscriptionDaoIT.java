@@ -0,0 +1,71 @@
+package com.dmdev.dao;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.integration.IntegrationTestBase;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.service.SubscriptionService;
+import com.dmdev.util.ShutdownSequence;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class WriteBehindSubscriptionDaoIT extends IntegrationTestBase {
+    private static final Clock clock = Clock.fixed(Instant.now().truncatedTo(ChronoUnit.MILLIS), ZoneId.systemDefault());
+    private final SubscriptionDao subscriptionDao = SubscriptionDao.getInstance();
+    private final WriteBehindSubscriptionDao writeBehindDao =
+            new WriteBehindSubscriptionDao(subscriptionDao, 10, 10, Duration.ofHours(1), new ShutdownSequence());
+    private final SubscriptionService subscriptionService = new SubscriptionService(writeBehindDao,
+            CreateSubscriptionMapper.getInstance(), CreateSubscriptionValidator.getInstance(), clock);
+
+    @AfterEach
+    void close() {
+        writeBehindDao.close();
+    }
+
+    @Test
+    void writesInsideTransactionShouldNotWaitForFlusher() {
+        Subscription renewed = subscriptionDao.insert(getSubscription(1));
+        Subscription canceled = subscriptionDao.insert(getSubscription(2));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> subscriptionService.inTransaction(() -> {
+            subscriptionService.cancel(renewed.getId());
+            subscriptionService.upsert(CreateSubscriptionDto.builder()
+                    .userId(1)
+                    .name("Jane")
+                    .provider(Provider.APPLE.name())
+                    .expirationDate(clock.instant().plus(1, ChronoUnit.DAYS))
+                    .build());
+            subscriptionService.cancel(canceled.getId());
+        }));
+
+        assertEquals(0, writeBehindDao.getPendingCount());
+        assertThat(subscriptionDao.findById(renewed.getId())).get()
+                .extracting(Subscription::getStatus, Subscription::getExpirationDate)
+                .containsExactly(Status.ACTIVE, clock.instant().plus(1, ChronoUnit.DAYS));
+        assertThat(subscriptionDao.findById(canceled.getId())).get()
+                .extracting(Subscription::getStatus).isEqualTo(Status.CANCELED);
+    }
+
+    private Subscription getSubscription(Integer userId) {
+        return Subscription.builder()
+                .userId(userId)
+                .name("Jane")
+                .provider(Provider.APPLE)
+                .expirationDate(clock.instant().plus(1, ChronoUnit.HOURS))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
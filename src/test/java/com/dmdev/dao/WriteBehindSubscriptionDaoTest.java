@@ -0,0 +1,204 @@
+package com.dmdev.dao;
+
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.util.ShutdownSequence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindSubscriptionDaoTest {
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    @Mock
+    private SubscriptionDao delegate;
+    private WriteBehindSubscriptionDao writeBehindDao;
+    private final List<List<Subscription>> flushed = new CopyOnWriteArrayList<>();
+    private final List<String> flushThreads = new CopyOnWriteArrayList<>();
+    private boolean finalFlushFails;
+
+    @AfterEach
+    void close() {
+        if (finalFlushFails) {
+            assertThrows(IllegalStateException.class, writeBehindDao::close);
+        } else {
+            writeBehindDao.close();
+        }
+    }
+
+    @Test
+    void shouldCoalesceRepeatedUpsertsOfSameKey() {
+        writeBehindDao = new WriteBehindSubscriptionDao(delegate, 10, 10, NEVER);
+        recordFlushes();
+        Subscription latest = getSubscription(1, Provider.APPLE).setExpirationDate(Instant.ofEpochSecond(300));
+
+        writeBehindDao.upsertByUserIdAndName(getSubscription(1, Provider.APPLE));
+        writeBehindDao.upsertByUserIdAndName(getSubscription(2, Provider.APPLE));
+        writeBehindDao.upsertByUserIdAndName(latest);
+        writeBehindDao.flush();
+
+        assertThat(flushed).hasSize(1);
+        assertThat(flushed.get(0)).containsExactly(latest, getSubscription(2, Provider.APPLE));
+    }
+
+    @Test
+    void shouldRejectSameNameOfAnotherProviderWhenEnqueued() {
+        writeBehindDao = new WriteBehindSubscriptionDao(delegate, 10, 10, NEVER);
+        recordFlushes();
+        Subscription conflicting = getSubscription(1, Provider.GOOGLE);
+
+        writeBehindDao.upsertByUserIdAndName(getSubscription(1, Provider.APPLE));
+        assertThrows(SQLIntegrityConstraintViolationException.class, () -> writeBehindDao.upsertByUserIdAndName(conflicting));
+        List<Subscription> rejected = writeBehindDao.upsertAllByUserIdAndName(List.of(conflicting, getSubscription(2, Provider.GOOGLE)));
+
+        assertThat(rejected).containsExactly(conflicting);
+        assertEquals(2, writeBehindDao.getPendingCount());
+        verifyNoInteractions(delegate);
+        writeBehindDao.flush();
+        assertThat(flushed.get(0)).containsExactly(getSubscription(1, Provider.APPLE), getSubscription(2, Provider.GOOGLE));
+    }
+
+    @Test
+    void shouldFlushInBackgroundWhenFlushSizeIsReached() {
+        writeBehindDao = new WriteBehindSubscriptionDao(delegate, 10, 2, NEVER);
+        doReturn(List.of()).when(delegate).upsertAllByUserIdAndName(any());
+
+        writeBehindDao.upsertByUserIdAndName(getSubscription(1, Provider.APPLE));
+        writeBehindDao.upsertByUserIdAndName(getSubscription(2, Provider.APPLE));
+
+        verify(delegate, timeout(1000)).upsertAllByUserIdAndName(any());
+    }
+
+    @Test
+    void shouldFlushWhenIntervalElapses() {
+        writeBehindDao = new WriteBehindSubscriptionDao(delegate, 10, 10, Duration.ofMillis(20));
+        doReturn(List.of()).when(delegate).upsertAllByUserIdAndName(any());
+
+        writeBehindDao.upsertByUserIdAndName(getSubscription(1, Provider.APPLE));
+
+        verify(delegate, timeout(1000)).upsertAllByUserIdAndName(any());
+    }
+
+    @Test
+    void shouldWaitForFlushWhenBufferIsFull() {
+        writeBehindDao = new WriteBehindSubscriptionDao(delegate, 2, 2, NEVER);
+        recordFlushes();
+
+        writeBehindDao.upsertAllByUserIdAndName(List.of(
+                getSubscription(1, Provider.APPLE), getSubscription(2, Provider.APPLE), getSubscription(3, Provider.APPLE)));
+
+        assertThat(flushed).isNotEmpty();
+        assertThat(flushed.get(0)).hasSize(2);
+        assertThat(writeBehindDao.getPendingCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void callerFlushesShouldRunOnFlusherThread() {
+        writeBehindDao = new WriteBehindSubscriptionDao(delegate, 1, 1, NEVER);
+        recordFlushes();
+
+        writeBehindDao.upsertAllByUserIdAndName(List.of(getSubscription(1, Provider.APPLE), getSubscription(2, Provider.APPLE)));
+        writeBehindDao.flush();
+        writeBehindDao.delete(1);
+
+        assertThat(flushThreads).isNotEmpty().containsOnly("subscription-write-behind");
+    }
+
+    @Test
+    void shouldKeepPendingUpsertsWhenFlushFails() {
+        writeBehindDao = new WriteBehindSubscriptionDao(delegate, 10, 10, NEVER);
+        writeBehindDao.upsertByUserIdAndName(getSubscription(1, Provider.APPLE));
+        doThrow(new IllegalStateException("database is down")).when(delegate).upsertAllByUserIdAndName(any());
+
+        assertThrows(IllegalStateException.class, writeBehindDao::flush);
+
+        assertEquals(1, writeBehindDao.getPendingCount());
+        finalFlushFails = true;
+    }
+
+    @Test
+    void otherWritesShouldFlushPendingUpsertsFirst() {
+        writeBehindDao = new WriteBehindSubscriptionDao(delegate, 10, 10, NEVER);
+        doReturn(List.of()).when(delegate).upsertAllByUserIdAndName(any());
+        writeBehindDao.upsertByUserIdAndName(getSubscription(1, Provider.APPLE));
+
+        writeBehindDao.transitionStatus(1, EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
+
+        var inOrder = inOrder(delegate);
+        inOrder.verify(delegate).upsertAllByUserIdAndName(any());
+        inOrder.verify(delegate).transitionStatus(1, EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
+    }
+
+    @Test
+    void closeShouldFlushPendingUpsertsAndRejectNewOnes() {
+        writeBehindDao = new WriteBehindSubscriptionDao(delegate, 10, 10, NEVER);
+        recordFlushes();
+        writeBehindDao.upsertByUserIdAndName(getSubscription(1, Provider.APPLE));
+
+        writeBehindDao.close();
+
+        assertThat(flushed).hasSize(1);
+        assertThrows(IllegalStateException.class,
+                () -> writeBehindDao.upsertByUserIdAndName(getSubscription(2, Provider.APPLE)));
+    }
+
+    @Test
+    void shutdownSequenceShouldFlushPendingUpsertsBeforeClosingResources() {
+        var shutdownSequence = new ShutdownSequence();
+        List<String> steps = new CopyOnWriteArrayList<>();
+        shutdownSequence.registerLast(() -> steps.add("close pool"));
+        writeBehindDao = new WriteBehindSubscriptionDao(delegate, 10, 10, NEVER, shutdownSequence);
+        doAnswer(invocation -> {
+            steps.add("flush");
+            return List.of();
+        }).when(delegate).upsertAllByUserIdAndName(any());
+        writeBehindDao.upsertByUserIdAndName(getSubscription(1, Provider.APPLE));
+
+        shutdownSequence.run();
+
+        assertThat(steps).containsExactly("flush", "close pool");
+        assertEquals(0, writeBehindDao.getPendingCount());
+    }
+
+    private void recordFlushes() {
+        doAnswer(invocation -> {
+            flushThreads.add(Thread.currentThread().getName());
+            flushed.add(List.copyOf(invocation.<Collection<Subscription>>getArgument(0)));
+            return List.of();
+        }).when(delegate).upsertAllByUserIdAndName(any());
+    }
+
+    private Subscription getSubscription(Integer userId, Provider provider) {
+        return Subscription.builder()
+                .userId(userId)
+                .name("Jane")
+                .provider(provider)
+                .expirationDate(Instant.ofEpochSecond(200))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
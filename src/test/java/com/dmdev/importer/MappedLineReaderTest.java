@@ -0,0 +1,52 @@
+package com.dmdev.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedLineReaderTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    void shouldReadLinesAcrossWindowBoundaries() throws IOException {
+        var file = write("first line\r\nsecond line\nthird ä line");
+
+        assertThat(readAll(file, 4)).containsExactly("first line", "second line", "third ä line");
+    }
+
+    @Test
+    void shouldSkipByteOrderMarkAndKeepEmptyLines() throws IOException {
+        var file = write("﻿header\n\nrow\n");
+
+        assertThat(readAll(file, 1024)).containsExactly("header", "", "row");
+    }
+
+    @Test
+    void shouldReadNothingFromEmptyFile() throws IOException {
+        assertThat(readAll(write(""), 1024)).isEmpty();
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(directory.resolve("lines.txt"), content, UTF_8);
+    }
+
+    private List<String> readAll(Path file, long windowSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (var reader = new MappedLineReader(file, windowSize)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,81 @@
+package com.dmdev.importer;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiptFormatTest {
+    private static final Instant EXPIRATION_DATE = Instant.parse("2030-10-10T10:15:30Z");
+
+    @Test
+    void csvShouldParseQuotedFields() {
+        CreateSubscriptionDto actualResult = ReceiptFormat.CSV.parse("1,\"Jane, \"\"Pro\"\"\",apple,2030-10-10T10:15:30Z");
+
+        assertEquals(CreateSubscriptionDto.builder()
+                .userId(1)
+                .name("Jane, \"Pro\"")
+                .provider("apple")
+                .expirationDate(EXPIRATION_DATE)
+                .build(), actualResult);
+    }
+
+    @Test
+    void csvShouldLeaveBlankFieldsToValidator() {
+        CreateSubscriptionDto actualResult = ReceiptFormat.CSV.parse(",,,");
+
+        assertEquals(CreateSubscriptionDto.builder().name("").build(), actualResult);
+    }
+
+    @Test
+    void csvShouldDetectHeader() {
+        assertTrue(ReceiptFormat.CSV.isHeader("userId,name,provider,expirationDate"));
+    }
+
+    @Test
+    void jsonLinesShouldParseEscapesAndSkipNestedMembers() {
+        CreateSubscriptionDto actualResult = ReceiptFormat.JSON_LINES.parse(
+                "{\"receipt\": {\"items\": [1, {\"a\": \"}\"}]}, \"userId\": 1, \"name\": \"Jane \\\"\\u00e4\\\"\","
+                + " \"provider\": \"GOOGLE\", \"expirationDate\": \"2030-10-10T10:15:30Z\", \"trial\": null}");
+
+        assertEquals(CreateSubscriptionDto.builder()
+                .userId(1)
+                .name("Jane \"ä\"")
+                .provider("GOOGLE")
+                .expirationDate(EXPIRATION_DATE)
+                .build(), actualResult);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"userId\": \"one\"}",
+            "{\"userId\": 1,}",
+            "{\"expirationDate\": \"tomorrow\"}",
+            "{\"name\": \"Jane\"} trailing",
+            "[1, 2]"
+    })
+    void jsonLinesShouldRejectMalformedRows(String line) {
+        assertThrows(IllegalArgumentException.class, () -> ReceiptFormat.JSON_LINES.parse(line));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"1,Jane,APPLE", "1,\"Jane,APPLE,2030-10-10T10:15:30Z", "x,Jane,APPLE,2030-10-10T10:15:30Z"})
+    void csvShouldRejectMalformedRows(String line) {
+        assertThrows(IllegalArgumentException.class, () -> ReceiptFormat.CSV.parse(line));
+    }
+
+    @Test
+    void shouldResolveFormatByExtension() {
+        assertThat(ReceiptFormat.of(Path.of("receipts.CSV"))).isEqualTo(ReceiptFormat.CSV);
+        assertThat(ReceiptFormat.of(Path.of("receipts.jsonl"))).isEqualTo(ReceiptFormat.JSON_LINES);
+        assertThrows(IllegalArgumentException.class, () -> ReceiptFormat.of(Path.of("receipts.xml")));
+    }
+}
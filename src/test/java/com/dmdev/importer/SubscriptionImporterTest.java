@@ -0,0 +1,108 @@
+package com.dmdev.importer;
+
+import com.dmdev.dao.InMemorySubscriptionDao;
+import com.dmdev.dao.SubscriptionRepository;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SubscriptionImporterTest {
+    private static final ImportSettings SETTINGS = ImportSettings.builder()
+            .batchSize(3)
+            .workerThreads(3)
+            .queueCapacity(2)
+            .build();
+
+    @TempDir
+    private Path directory;
+    private final InMemorySubscriptionDao subscriptionDao = new InMemorySubscriptionDao();
+
+    @Test
+    void shouldImportValidRowsAndReportRejectedOnes() throws IOException {
+        subscriptionDao.insert(Subscription.builder()
+                .userId(9)
+                .name("Jane")
+                .provider(Provider.GOOGLE)
+                .expirationDate(Instant.parse("2100-01-01T00:00:00Z"))
+                .status(Status.ACTIVE)
+                .build());
+        var source = Files.writeString(directory.resolve("receipts.csv"), """
+                userId,name,provider,expirationDate
+                1,Jane,APPLE,2100-01-01T00:00:00Z
+                2,Jack,google,2100-01-01T00:00:00Z
+
+                3,Jane,amazon,2100-01-01T00:00:00Z
+                not a row
+                9,Jane,APPLE,2100-01-01T00:00:00Z
+                4,,APPLE,2000-01-01T00:00:00Z
+                1,Jane,APPLE,2101-01-01T00:00:00Z
+                """);
+        var errorFile = directory.resolve("rejected.tsv");
+
+        ImportReport actualResult = createImporter(subscriptionDao).importFile(source, errorFile);
+
+        assertEquals(7, actualResult.getTotalRows());
+        assertEquals(3, actualResult.getImportedRows());
+        assertEquals(4, actualResult.getRejectedRows());
+        assertThat(actualResult.getRowsPerSecond()).isPositive();
+        assertThat(subscriptionDao.findByUserId(1)).extracting(Subscription::getExpirationDate)
+                .containsExactly(Instant.parse("2101-01-01T00:00:00Z"));
+        assertThat(subscriptionDao.findByUserId(2)).extracting(Subscription::getProvider).containsExactly(Provider.GOOGLE);
+        assertThat(Files.readAllLines(errorFile)).containsExactlyInAnyOrder(
+                "5\t102\t3,Jane,amazon,2100-01-01T00:00:00Z",
+                "6\t200\tnot a row",
+                "7\t201\t9,Jane,APPLE,2100-01-01T00:00:00Z",
+                "8\t101,103\t4,,APPLE,2000-01-01T00:00:00Z");
+    }
+
+    @Test
+    void shouldImportJsonLinesInBatches() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int userId = 1; userId <= 100; userId++) {
+            lines.add("{\"userId\": %d, \"name\": \"Jane\", \"provider\": \"APPLE\", \"expirationDate\": \"2100-01-01T00:00:00Z\"}"
+                    .formatted(userId));
+        }
+        var source = Files.write(directory.resolve("receipts.jsonl"), lines);
+
+        ImportReport actualResult = createImporter(subscriptionDao).importFile(source, directory.resolve("rejected.tsv"));
+
+        assertEquals(100, actualResult.getImportedRows());
+        assertThat(subscriptionDao.findAll()).hasSize(100);
+        assertThat(Files.readAllLines(directory.resolve("rejected.tsv"))).isEmpty();
+    }
+
+    @Test
+    void shouldFailWhenWritesFail() throws IOException {
+        var source = Files.writeString(directory.resolve("receipts.csv"), "1,Jane,APPLE,2100-01-01T00:00:00Z\n");
+        var failingDao = new InMemorySubscriptionDao() {
+            @Override
+            public List<Subscription> upsertAllByUserIdAndName(Collection<Subscription> entities) {
+                throw new IllegalStateException("database is down");
+            }
+        };
+
+        assertThrows(IllegalStateException.class,
+                () -> createImporter(failingDao).importFile(source, directory.resolve("rejected.tsv")));
+    }
+
+    private SubscriptionImporter createImporter(SubscriptionRepository subscriptionDao) {
+        return new SubscriptionImporter(subscriptionDao, CreateSubscriptionMapper.getInstance(),
+                CreateSubscriptionValidator.getInstance(), SETTINGS);
+    }
+}
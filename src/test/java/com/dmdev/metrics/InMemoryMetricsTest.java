@@ -0,0 +1,64 @@
+package com.dmdev.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryMetricsTest {
+    private final InMemoryMetrics metrics = new InMemoryMetrics();
+
+    @Test
+    void shouldReportPercentilesWithinBucketPrecision() {
+        for (int value = 1; value <= 1000; value++) {
+            metrics.recordValue("dao.findAll.rows", value);
+        }
+
+        HistogramSnapshot actualResult = metrics.snapshot().getHistograms().get("dao.findAll.rows");
+
+        assertEquals(1000, actualResult.getCount());
+        assertEquals(1000, actualResult.getMax());
+        assertEquals(500.5, actualResult.getMean());
+        assertThat(actualResult.getP50()).isBetween(500L, 532L);
+        assertThat(actualResult.getP99()).isBetween(990L, 1000L);
+    }
+
+    @Test
+    void timerShouldRecordElapsedTime() {
+        try (var ignored = metrics.startTimer("dao.findById")) {
+            Thread.onSpinWait();
+        }
+
+        HistogramSnapshot actualResult = metrics.snapshot().getHistograms().get("dao.findById");
+
+        assertEquals(1, actualResult.getCount());
+        assertThat(actualResult.getMax()).isPositive();
+    }
+
+    @Test
+    void shouldCountAndExportCounters() {
+        metrics.increment("validation.error.100");
+        metrics.increment("validation.error.100");
+        metrics.recordValue("service.upsert", 42);
+
+        MetricsSnapshot actualResult = metrics.snapshot();
+
+        assertEquals(2L, actualResult.getCounters().get("validation.error.100"));
+        assertThat(actualResult.toPrometheusText())
+                .contains("validation_error_100_total 2")
+                .contains("service_upsert{quantile=\"0.99\"} 42")
+                .contains("service_upsert_count 1");
+    }
+
+    @Test
+    void bucketUpperBoundShouldCoverEveryValueOfItsBucket() {
+        for (long value : new long[]{0, 31, 32, 33, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int index = Histogram.indexOf(value);
+
+            assertThat(Histogram.upperBoundOf(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(Histogram.upperBoundOf(index - 1)).isLessThan(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.dmdev.service;
+
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Subscription;
+import com.dmdev.exception.SubscriptionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncSubscriptionServiceTest {
+    @Mock
+    private SubscriptionService subscriptionService;
+    private ExecutorService executor;
+    private AsyncSubscriptionService asyncSubscriptionService;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+        asyncSubscriptionService = new AsyncSubscriptionService(subscriptionService, executor, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void upsertShouldCompleteWithServiceResult() throws Exception {
+        CreateSubscriptionDto dto = CreateSubscriptionDto.builder().userId(1).build();
+        Subscription subscription = Subscription.builder().id(1).build();
+        doReturn(subscription).when(subscriptionService).upsert(dto);
+
+        Subscription actualResult = asyncSubscriptionService.upsert(dto).get();
+
+        assertThat(actualResult).isSameAs(subscription);
+    }
+
+    @Test
+    void cancelShouldCompleteExceptionallyWhenServiceFails() {
+        doThrow(new SubscriptionException("Only active subscription 1 can be canceled")).when(subscriptionService).cancel(1);
+
+        var exception = assertThrows(ExecutionException.class, () -> asyncSubscriptionService.cancel(1).get());
+
+        assertThat(exception.getCause()).isInstanceOf(SubscriptionException.class);
+    }
+
+    @Test
+    void shouldBoundInFlightWork() {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return null;
+        }).when(subscriptionService).expire(1);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(asyncSubscriptionService.expire(1));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void callerShouldWaitForPermitWhenLimitIsReached() throws Exception {
+        var finish = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            finish.await();
+            return null;
+        }).when(subscriptionService).expire(1);
+        asyncSubscriptionService.expire(1);
+        asyncSubscriptionService.expire(1);
+
+        var caller = CompletableFuture.supplyAsync(() -> asyncSubscriptionService.expire(1));
+
+        assertThrows(TimeoutException.class, () -> caller.get(100, TimeUnit.MILLISECONDS));
+        finish.countDown();
+        caller.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        verify(subscriptionService, times(3)).expire(1);
+    }
+}
@@ -0,0 +1,221 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.InMemorySubscriptionDao;
+import com.dmdev.dao.WriteBehindSubscriptionDao;
+import com.dmdev.dto.CreateSubscriptionDto;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.mapper.CreateSubscriptionMapper;
+import com.dmdev.util.ShutdownSequence;
+import com.dmdev.validator.CreateSubscriptionValidator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExpirationSchedulerTest {
+    private static final Instant START = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    private final MutableClock clock = new MutableClock(START);
+    private InMemorySubscriptionDao subscriptionDao;
+    private SubscriptionService subscriptionService;
+    private ExpirationScheduler scheduler;
+
+    @BeforeEach
+    void init() {
+        subscriptionDao = new InMemorySubscriptionDao();
+        subscriptionService = new SubscriptionService(subscriptionDao,
+                CreateSubscriptionMapper.getInstance(), CreateSubscriptionValidator.getInstance(), clock);
+        scheduler = new ExpirationScheduler(subscriptionService, subscriptionDao, clock,
+                Duration.ofSeconds(1), Duration.ofHours(1), 2);
+    }
+
+    @Test
+    void tickShouldExpireDueActiveSubscriptionsInBatches() {
+        for (int userId = 1; userId <= 5; userId++) {
+            subscriptionDao.insert(getSubscription(userId, START.plusSeconds(userId)));
+        }
+        var notDue = subscriptionDao.insert(getSubscription(6, START.plusSeconds(600)));
+        var canceled = subscriptionDao.insert(getSubscription(7, START.plusSeconds(1)).setStatus(Status.CANCELED));
+
+        assertEquals(0, scheduler.tick());
+        assertEquals(6, scheduler.getArmedCount());
+
+        clock.advance(Duration.ofSeconds(5));
+        assertEquals(5, scheduler.tick());
+
+        assertThat(subscriptionDao.findAll())
+                .filteredOn(subscription -> subscription.getStatus() == Status.EXPIRED)
+                .extracting(Subscription::getUserId)
+                .containsExactlyInAnyOrder(1, 2, 3, 4, 5)
+                .doesNotContain(notDue.getUserId(), canceled.getUserId());
+        assertThat(subscriptionDao.findAll())
+                .filteredOn(subscription -> subscription.getStatus() == Status.EXPIRED)
+                .extracting(Subscription::getExpirationDate)
+                .containsOnly(clock.instant());
+        assertEquals(1, scheduler.getArmedCount());
+    }
+
+    @Test
+    void upsertShouldRearmWhenExpirationDateChanges() {
+        var subscription = subscriptionService.upsert(getDto(START.plus(10, ChronoUnit.MINUTES)));
+        assertEquals(0, scheduler.tick());
+
+        subscriptionService.upsert(getDto(START.plus(20, ChronoUnit.MINUTES)));
+        clock.advance(Duration.ofMinutes(15));
+        assertEquals(0, scheduler.tick());
+
+        clock.advance(Duration.ofMinutes(10));
+        assertEquals(1, scheduler.tick());
+        assertThat(subscriptionDao.findById(subscription.getId())).get()
+                .extracting(Subscription::getStatus).isEqualTo(Status.EXPIRED);
+    }
+
+    @Test
+    void cancelShouldDisarmSubscription() {
+        var subscription = subscriptionService.upsert(getDto(START.plus(10, ChronoUnit.MINUTES)));
+        scheduler.tick();
+
+        subscriptionService.cancel(subscription.getId());
+        clock.advance(Duration.ofMinutes(15));
+
+        assertEquals(0, scheduler.tick());
+        assertEquals(0, scheduler.getArmedCount());
+        assertThat(subscriptionDao.findById(subscription.getId())).get()
+                .extracting(Subscription::getStatus).isEqualTo(Status.CANCELED);
+    }
+
+    @Test
+    void tickShouldSkipSubscriptionRenewedWithoutNotifyingScheduler() {
+        var subscription = subscriptionService.upsert(getDto(START.plus(10, ChronoUnit.MINUTES)));
+        scheduler.tick();
+        subscriptionDao.update(subscriptionDao.findById(subscription.getId()).orElseThrow()
+                .setExpirationDate(START.plus(1, ChronoUnit.DAYS)));
+
+        clock.advance(Duration.ofMinutes(15));
+
+        assertEquals(0, scheduler.tick());
+        assertThat(subscriptionDao.findById(subscription.getId())).get()
+                .extracting(Subscription::getStatus, Subscription::getExpirationDate)
+                .containsExactly(Status.ACTIVE, START.plus(1, ChronoUnit.DAYS));
+    }
+
+    @Test
+    void renewalBufferedByWriteBehindShouldBeArmedOnNextReload() {
+        var subscription = subscriptionDao.insert(getSubscription(1, START.plus(10, ChronoUnit.MINUTES)));
+        try (var writeBehindDao = new WriteBehindSubscriptionDao(subscriptionDao, 10, 10, Duration.ofHours(1),
+                new ShutdownSequence())) {
+            var writeBehindService = new SubscriptionService(writeBehindDao,
+                    CreateSubscriptionMapper.getInstance(), CreateSubscriptionValidator.getInstance(), clock);
+            var writeBehindScheduler = new ExpirationScheduler(writeBehindService, writeBehindDao, clock,
+                    Duration.ofSeconds(1), Duration.ofHours(1), 2);
+            writeBehindScheduler.tick();
+
+            writeBehindService.upsert(getDto(START.plus(40, ChronoUnit.MINUTES)));
+            clock.advance(Duration.ofMinutes(15));
+            assertEquals(0, writeBehindScheduler.tick());
+            assertEquals(0, writeBehindScheduler.getArmedCount());
+
+            clock.advance(Duration.ofMinutes(16));
+            assertEquals(0, writeBehindScheduler.tick());
+            assertEquals(1, writeBehindScheduler.getArmedCount());
+
+            clock.advance(Duration.ofMinutes(10));
+            assertEquals(1, writeBehindScheduler.tick());
+        }
+        assertThat(subscriptionDao.findById(subscription.getId())).get()
+                .extracting(Subscription::getStatus).isEqualTo(Status.EXPIRED);
+    }
+
+    @Test
+    void tickShouldLoadSubscriptionsBeyondHorizonLater() {
+        var subscription = subscriptionDao.insert(getSubscription(1, START.plus(90, ChronoUnit.MINUTES)));
+
+        scheduler.tick();
+        assertEquals(0, scheduler.getArmedCount());
+
+        clock.advance(Duration.ofMinutes(31));
+        scheduler.tick();
+        assertEquals(1, scheduler.getArmedCount());
+
+        clock.advance(Duration.ofMinutes(60));
+        assertEquals(1, scheduler.tick());
+        assertThat(subscriptionDao.findById(subscription.getId())).get()
+                .extracting(Subscription::getStatus).isEqualTo(Status.EXPIRED);
+    }
+
+    @Test
+    void tickShouldSkipDeletedSubscriptions() {
+        var subscription = subscriptionDao.insert(getSubscription(1, START.plusSeconds(1)));
+        scheduler.tick();
+        subscriptionDao.delete(subscription.getId());
+
+        clock.advance(Duration.ofSeconds(1));
+
+        assertEquals(0, scheduler.tick());
+        assertEquals(0, scheduler.getArmedCount());
+    }
+
+    @Test
+    void shouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpirationScheduler(subscriptionService, subscriptionDao,
+                clock, Duration.ofSeconds(1), Duration.ZERO, 2));
+        assertThrows(IllegalArgumentException.class, () -> new ExpirationScheduler(subscriptionService, subscriptionDao,
+                clock, Duration.ofSeconds(1), Duration.ofHours(1), 0));
+    }
+
+    private Subscription getSubscription(Integer userId, Instant expirationDate) {
+        return Subscription.builder()
+                .userId(userId)
+                .name("Jane")
+                .provider(Provider.APPLE)
+                .expirationDate(expirationDate)
+                .status(Status.ACTIVE)
+                .build();
+    }
+
+    private CreateSubscriptionDto getDto(Instant expirationDate) {
+        return CreateSubscriptionDto.builder()
+                .userId(1)
+                .name("Jane")
+                .provider(Provider.APPLE.name())
+                .expirationDate(expirationDate)
+                .build();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.dmdev.service;
+
+import com.dmdev.dao.SubscriptionEventDao;
+import com.dmdev.entity.SubscriptionEvent;
+import com.dmdev.entity.SubscriptionEventType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+class SubscriptionEventStreamTest {
+    private static final Instant NOW = Instant.parse("2030-01-01T00:00:00Z");
+    private static final Clock clock = Clock.fixed(NOW, ZoneId.systemDefault());
+    private static final Duration GRACE_PERIOD = Duration.ofSeconds(10);
+
+    @Mock
+    private SubscriptionEventDao eventDao;
+    @Mock
+    private Clock mutableClock;
+
+    @Test
+    void pollShouldReturnEventsAndAdvanceOffset() {
+        var stream = new SubscriptionEventStream(eventDao, 5, 3, GRACE_PERIOD, clock);
+        doReturn(List.of(event(6, NOW), event(7, NOW))).when(eventDao).findAfter(5, 3);
+        doReturn(List.of()).when(eventDao).findAfter(7, 3);
+
+        assertThat(stream.poll()).extracting(SubscriptionEvent::getId).containsExactly(6L, 7L);
+        assertThat(stream.poll()).isEmpty();
+        assertEquals(7, stream.getOffset());
+    }
+
+    @Test
+    void pollShouldStopBeforeRecentGap() {
+        var stream = new SubscriptionEventStream(eventDao, 0, 10, GRACE_PERIOD, clock);
+        doReturn(List.of(event(1, NOW), event(3, NOW.minusSeconds(1)))).when(eventDao).findAfter(0, 10);
+
+        assertThat(stream.poll()).extracting(SubscriptionEvent::getId).containsExactly(1L);
+        assertEquals(1, stream.getOffset());
+    }
+
+    @Test
+    void pollShouldSkipGapOnceGracePeriodPassedSinceFirstSeen() {
+        var stream = new SubscriptionEventStream(eventDao, 0, 10, GRACE_PERIOD, mutableClock);
+        doReturn(NOW, NOW.plusSeconds(9), NOW.plusSeconds(10)).when(mutableClock).instant();
+        doReturn(List.of(event(1, NOW), event(3, NOW))).when(eventDao).findAfter(0, 10);
+        doReturn(List.of(event(3, NOW))).when(eventDao).findAfter(1, 10);
+
+        assertThat(stream.poll()).extracting(SubscriptionEvent::getId).containsExactly(1L);
+        assertThat(stream.poll()).isEmpty();
+        assertThat(stream.poll()).extracting(SubscriptionEvent::getId).containsExactly(3L);
+        assertEquals(3, stream.getOffset());
+    }
+
+    @Test
+    void pollShouldWaitForLateCommitWithOldOccurredAt() {
+        var stream = new SubscriptionEventStream(eventDao, 0, 10, GRACE_PERIOD, clock);
+        doReturn(List.of(event(1, NOW.minusSeconds(60)), event(3, NOW.minusSeconds(30))))
+                .doReturn(List.of(event(2, NOW.minusSeconds(50)), event(3, NOW.minusSeconds(30))))
+                .when(eventDao).findAfter(anyLong(), eq(10));
+
+        assertThat(stream.poll()).extracting(SubscriptionEvent::getId).containsExactly(1L);
+        assertThat(stream.poll()).extracting(SubscriptionEvent::getId).containsExactly(2L, 3L);
+    }
+
+    @Test
+    void shouldRejectNonPositiveBatchSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SubscriptionEventStream(eventDao, 0, 0, GRACE_PERIOD, clock));
+    }
+
+    private static SubscriptionEvent event(long id, Instant occurredAt) {
+        return SubscriptionEvent.builder()
+                .id(id)
+                .type(SubscriptionEventType.CREATED)
+                .occurredAt(occurredAt)
+                .build();
+    }
+}
@@ -5,6 +5,7 @@ import com.dmdev.dto.CreateSubscriptionDto;
 import com.dmdev.entity.Provider;
 import com.dmdev.entity.Status;
 import com.dmdev.entity.Subscription;
+import com.dmdev.exception.SubscriptionException;
 import com.dmdev.integration.IntegrationTestBase;
 import com.dmdev.mapper.CreateSubscriptionMapper;
 import com.dmdev.validator.CreateSubscriptionValidator;
@@ -14,8 +15,16 @@ import org.junit.jupiter.api.Test;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class SubscriptionServiceIT extends IntegrationTestBase {
     private SubscriptionDao subscriptionDao = SubscriptionDao.getInstance();
@@ -40,11 +49,10 @@ class SubscriptionServiceIT extends IntegrationTestBase {
         Subscription subscription = subscriptionDao.insert(getActiveSubscription(1));
 
         subscriptionService.expire(subscription.getId());
-        subscription.setStatus(Status.EXPIRED);
-        subscription.setExpirationDate(Instant.now(clock));
-        Subscription actualResult = subscriptionDao.update(subscription);
+        Subscription actualResult = subscriptionDao.findById(subscription.getId()).orElseThrow();
 
         assertThat(actualResult.getStatus()).isEqualTo(expiredSubscription.getStatus());
+        assertThat(actualResult.getVersion()).isEqualTo(subscription.getVersion() + 1);
     }
 
 
@@ -53,10 +61,99 @@ class SubscriptionServiceIT extends IntegrationTestBase {
         Subscription subscription = subscriptionDao.insert(getActiveSubscription(1));
 
         subscriptionService.cancel(subscription.getId());
-        subscription.setStatus(Status.CANCELED);
-        Subscription actualResult = subscriptionDao.update(subscription);
+        Subscription actualResult = subscriptionDao.findById(subscription.getId()).orElseThrow();
 
-        assertThat(actualResult.getStatus()).isEqualTo(subscription.getStatus());
+        assertThat(actualResult.getStatus()).isEqualTo(Status.CANCELED);
+        assertThat(actualResult.getVersion()).isEqualTo(subscription.getVersion() + 1);
+    }
+
+    @Test
+    void inTransactionShouldRollbackEveryOperationOnFailure() {
+        Subscription subscription = subscriptionDao.insert(getActiveSubscription(1));
+        List<Subscription> before = subscriptionDao.findAll();
+
+        assertThrows(SubscriptionException.class, () -> subscriptionService.inTransaction(() -> {
+            subscriptionService.cancel(subscription.getId());
+            subscriptionService.upsert(CreateSubscriptionDto.builder()
+                    .userId(2)
+                    .name("Jane")
+                    .provider(Provider.APPLE.name())
+                    .expirationDate(Instant.now().plusSeconds(3600))
+                    .build());
+            subscriptionService.expire(subscription.getId());
+            subscriptionService.cancel(subscription.getId());
+        }));
+
+        assertThat(subscriptionDao.findAll()).isEqualTo(before);
+    }
+
+    @Test
+    void expireAllDueBefore() {
+        subscriptionDao.insertAll(List.of(getActiveSubscription(1), getActiveSubscription(2), getActiveSubscription(3)));
+
+        int actualResult = subscriptionService.expireAllDueBefore(Instant.now().plusSeconds(60));
+
+        assertThat(actualResult).isEqualTo(3);
+        assertThat(subscriptionDao.findAll()).map(Subscription::getStatus).containsOnly(Status.EXPIRED);
+    }
+
+    @Test
+    void concurrentUpsertsOfSameSubscriptionShouldAllSucceed() throws Exception {
+        CreateSubscriptionDto dto = CreateSubscriptionDto.builder()
+                .userId(1)
+                .name("Jane")
+                .provider(Provider.APPLE.name())
+                .expirationDate(Instant.now().plusSeconds(3600))
+                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Subscription>> futures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                futures.add(executor.submit(() -> subscriptionService.upsert(dto)));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(subscriptionDao.findAll()).singleElement()
+                .extracting(Subscription::getVersion).isEqualTo(39);
+    }
+
+    @Test
+    void concurrentTransactionalUpsertsOfSameNewSubscriptionShouldAllSucceed() throws Exception {
+        var threads = 4;
+        var subscriptions = 20;
+        var barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int userId = 1; userId <= subscriptions; userId++) {
+                        var dto = CreateSubscriptionDto.builder()
+                                .userId(userId)
+                                .name("Jane")
+                                .provider(Provider.APPLE.name())
+                                .expirationDate(Instant.now().plusSeconds(3600))
+                                .build();
+                        barrier.await(10, TimeUnit.SECONDS);
+                        subscriptionService.inTransaction(() -> subscriptionService.upsert(dto));
+                    }
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(subscriptionDao.findAll()).hasSize(subscriptions)
+                .extracting(Subscription::getVersion).containsOnly(threads - 1);
     }
 
     private CreateSubscriptionDto getCreateSubscriptionDto() {
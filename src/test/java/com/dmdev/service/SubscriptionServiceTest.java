@@ -23,18 +23,18 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
-import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
-import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class SubscriptionServiceTest {
@@ -79,16 +79,16 @@ class SubscriptionServiceTest {
             Subscription subscription = getSubscription();
 
             doReturn(new ValidationResult()).when(createSubscriptionValidator).validate(createSubscriptionDto);
-            doReturn(Collections.emptyList()).when(subscriptionDao).findByUserId(createSubscriptionDto.getUserId());
             doReturn(subscription).when(createSubscriptionMapper).map(createSubscriptionDto);
-            doReturn(subscription).when(subscriptionDao).upsert(any());
+            doReturn(subscription).when(subscriptionDao).upsertByUserIdAndName(subscription);
 
             Subscription actualResult = subscriptionService.upsert(createSubscriptionDto);
 
             assertNotNull(actualResult);
             Assertions.assertThat(actualResult).isEqualTo(subscription);
-            verify(subscriptionDao).findByUserId(createSubscriptionDto.getUserId());
-            verify(subscriptionDao).upsert(any());
+            verify(subscriptionDao).isUpsertAtomic();
+            verify(subscriptionDao).upsertByUserIdAndName(subscription);
+            verifyNoMoreInteractions(subscriptionDao);
 
         }
     }
@@ -121,18 +121,28 @@ class SubscriptionServiceTest {
     class TestCancel {
         private static final int SUB_ID = 1;
 
+        @Test
+        void whenActiveShouldTransitionToCancelledInSingleStatement() {
+            doReturn(true).when(subscriptionDao).transitionStatus(SUB_ID, EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
+
+            subscriptionService.cancel(SUB_ID);
+
+            verify(subscriptionDao).transitionStatus(SUB_ID, EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
+            verifyNoMoreInteractions(subscriptionDao);
+        }
+
         @Test
         void whenNotFoundByIdShouldThrowException() {
+            doReturn(false).when(subscriptionDao).transitionStatus(SUB_ID, EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
             doReturn(Optional.empty()).when(subscriptionDao).findById(SUB_ID);
 
             assertThrows(IllegalArgumentException.class, () -> subscriptionService.cancel(SUB_ID));
-            verify(subscriptionDao).findById(SUB_ID);
-            verifyNoMoreInteractions(subscriptionDao);
         }
 
         @Test
         void whenStatusNotActive_Cancelled_ShouldThrowException() {
             var subscription = Subscription.builder().status(Status.CANCELED).build();
+            doReturn(false).when(subscriptionDao).transitionStatus(SUB_ID, EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
             doReturn(Optional.of(subscription)).when(subscriptionDao).findById(SUB_ID);
 
             var exception = assertThrows(SubscriptionException.class, () -> subscriptionService.cancel(SUB_ID));
@@ -142,95 +152,70 @@ class SubscriptionServiceTest {
         @Test
         void whenStatusNotActive_Expired_ShouldThrowException() {
             var subscription = Subscription.builder().status(Status.EXPIRED).build();
+            doReturn(false).when(subscriptionDao).transitionStatus(SUB_ID, EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
             doReturn(Optional.of(subscription)).when(subscriptionDao).findById(SUB_ID);
 
             var exception = assertThrows(SubscriptionException.class, () -> subscriptionService.cancel(SUB_ID));
             assertEquals("Only active subscription 1 can be canceled", exception.getMessage());
         }
-
-        @Nested
-        class WhenActive {
-            private Subscription subscription;
-
-            @BeforeEach
-            void setUp() {
-                subscription = mock(Subscription.class);
-                when(subscriptionDao.findById(SUB_ID)).thenReturn(Optional.of(subscription));
-                when(subscription.getStatus()).thenReturn(Status.ACTIVE);
-            }
-
-            @Test
-            void shouldSetStatusCancelled() {
-                subscriptionService.cancel(SUB_ID);
-                verify(subscription).setStatus(Status.CANCELED);
-            }
-
-
-            @Test
-            void shouldUpdateSubscription() {
-                subscriptionService.cancel(SUB_ID);
-                verify(subscriptionDao).update(subscription);
-            }
-        }
     }
 
 
     @Nested
     class TestExpire {
         private static final int SUB_ID = 1;
+        private final Set<Status> expirableStatuses = EnumSet.of(Status.ACTIVE, Status.CANCELED);
+
+        @Test
+        void whenNotExpiredShouldTransitionToExpiredInSingleStatement() {
+            doReturn(true).when(subscriptionDao).transitionStatus(SUB_ID, expirableStatuses, Status.EXPIRED, clock.instant());
+
+            subscriptionService.expire(SUB_ID);
+
+            verify(subscriptionDao).transitionStatus(SUB_ID, expirableStatuses, Status.EXPIRED, clock.instant());
+            verifyNoMoreInteractions(subscriptionDao);
+        }
 
         @Test
         void whenNotFoundByIdShouldThrowException() {
+            doReturn(false).when(subscriptionDao).transitionStatus(SUB_ID, expirableStatuses, Status.EXPIRED, clock.instant());
             doReturn(Optional.empty()).when(subscriptionDao).findById(SUB_ID);
 
             assertThrows(IllegalArgumentException.class, () -> subscriptionService.expire(SUB_ID));
-            verify(subscriptionDao).findById(SUB_ID);
-            verifyNoMoreInteractions(subscriptionDao);
         }
 
         @Test
         void whenStatusExpiredShouldThrowException() {
             var subscription = Subscription.builder().status(Status.EXPIRED).build();
+            doReturn(false).when(subscriptionDao).transitionStatus(SUB_ID, expirableStatuses, Status.EXPIRED, clock.instant());
             doReturn(Optional.of(subscription)).when(subscriptionDao).findById(SUB_ID);
 
             var exception = assertThrows(SubscriptionException.class, () -> subscriptionService.expire(SUB_ID));
             assertEquals("Subscription 1 has already expired", exception.getMessage());
         }
+    }
 
-        @Nested
-        class WhenActive {
-            private Subscription subscription;
-
-            @BeforeEach
-            void setUp() {
-                subscription = mock(Subscription.class);
-                when(subscriptionDao.findById(SUB_ID)).thenReturn(Optional.of(subscription));
-                when(subscription.getStatus()).thenReturn(Status.ACTIVE);
-            }
-
-            @Test
-            void shouldSetExpirationDate() {
-                subscriptionService.expire(SUB_ID);
-
-                verify(subscription).setExpirationDate(clock.instant());
-            }
+    @Nested
+    class TestExpireAllDueBefore {
 
-            @Test
-            void shouldSetStatusExpired() {
-                subscriptionService.expire(SUB_ID);
+        @Test
+        void shouldExpireInChunksUntilChunkIsNotFull() {
+            Instant dueBefore = clock.instant();
+            doReturn(List.of(1, 2), List.of(3)).when(subscriptionDao).expireDueBefore(dueBefore, clock.instant(), 2);
 
-                verify(subscription).setStatus(Status.EXPIRED);
-            }
+            int actualResult = subscriptionService.expireAllDueBefore(dueBefore);
 
+            assertEquals(3, actualResult);
+            verify(subscriptionDao, times(2)).expireDueBefore(dueBefore, clock.instant(), 2);
+        }
 
-            @Test
-            void shouldUpdateSubscription() {
-                subscriptionService.expire(SUB_ID);
+        @Test
+        void shouldUseClockAsCutOffForExpireAllDue() {
+            doReturn(List.of()).when(subscriptionDao).expireDueBefore(clock.instant(), clock.instant(), 2);
 
-                verify(subscriptionDao).update(subscription);
-            }
+            int actualResult = subscriptionService.expireAllDue();
 
+            assertEquals(0, actualResult);
         }
-
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,153 @@
+package com.dmdev.util;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class BatchLoaderTest {
+    private final List<List<Integer>> batches = new ArrayList<>();
+    private final Function<Collection<Integer>, Map<Integer, String>> batchFunction = keys -> {
+        batches.add(List.copyOf(keys));
+        return keys.stream().collect(Collectors.toMap(Function.identity(), key -> "value-" + key));
+    };
+
+    @Test
+    void shouldCoalesceLoadsIntoSingleBatch() {
+        var loader = new BatchLoader<>(batchFunction, 10);
+
+        CompletableFuture<String> first = loader.load(1);
+        CompletableFuture<String> second = loader.load(2);
+        CompletableFuture<String> duplicate = loader.load(1);
+        loader.dispatch();
+
+        assertThat(first.join()).isEqualTo("value-1");
+        assertThat(second.join()).isEqualTo("value-2");
+        assertThat(duplicate).isSameAs(first);
+        assertThat(batches).containsExactly(List.of(1, 2));
+    }
+
+    @Test
+    void shouldServeRepeatedLoadsFromRequestCache() {
+        var loader = new BatchLoader<>(batchFunction, 10);
+        loader.load(1);
+        loader.dispatch();
+
+        CompletableFuture<String> actualResult = loader.load(1);
+        loader.dispatch();
+
+        assertThat(actualResult.join()).isEqualTo("value-1");
+        assertThat(batches).hasSize(1);
+    }
+
+    @Test
+    void shouldReloadAfterClear() {
+        var loader = new BatchLoader<>(batchFunction, 10);
+        loader.load(1);
+        loader.dispatch();
+
+        loader.clear(1);
+        loader.load(1);
+        loader.dispatch();
+
+        assertThat(batches).containsExactly(List.of(1), List.of(1));
+    }
+
+    @Test
+    void shouldDispatchWhenBatchIsFull() {
+        var loader = new BatchLoader<>(batchFunction, 2);
+
+        CompletableFuture<Map<Integer, String>> actualResult = loader.loadMany(List.of(1, 2, 3));
+        loader.dispatch();
+
+        assertThat(actualResult.join()).containsExactly(Map.entry(1, "value-1"), Map.entry(2, "value-2"), Map.entry(3, "value-3"));
+        assertThat(batches).containsExactly(List.of(1, 2), List.of(3));
+    }
+
+    @Test
+    void shouldFailWholeBatchAndAllowRetry() {
+        var failing = new BatchLoader<Integer, String>(keys -> {
+            throw new IllegalStateException("boom");
+        }, 10);
+
+        CompletableFuture<String> actualResult = failing.load(1);
+        failing.dispatch();
+
+        assertThrows(CompletionException.class, actualResult::join);
+        assertThat(failing.load(1)).isNotSameAs(actualResult);
+    }
+
+    @Test
+    void shouldCoalesceConcurrentLoads() throws InterruptedException {
+        var loader = new BatchLoader<>(batchFunction, 100);
+        var executor = Executors.newFixedThreadPool(4);
+        var queued = new CountDownLatch(8);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            var userId = i;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                var future = loader.load(userId);
+                queued.countDown();
+                return future;
+            }, executor).thenCompose(Function.identity()));
+        }
+
+        queued.await();
+        loader.dispatch();
+        executor.shutdown();
+
+        assertThat(futures).map(CompletableFuture::join).hasSize(8);
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5, 6, 7);
+    }
+
+    @Test
+    void shouldDispatchConcurrentLoadsOnScheduledTickAndNotKeepResults() throws InterruptedException {
+        var scheduler = mock(ScheduledExecutorService.class);
+        var loader = new BatchLoader<>(batchFunction, 100, Duration.ofMillis(5), scheduler);
+        var executor = Executors.newFixedThreadPool(4);
+        var queued = new CountDownLatch(8);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            var userId = i;
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                var future = loader.load(userId);
+                queued.countDown();
+                return future;
+            }, executor).thenCompose(Function.identity()));
+        }
+
+        queued.await();
+        executor.shutdown();
+        var tick = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(tick.capture(), eq(Duration.ofMillis(5).toNanos()), eq(NANOSECONDS));
+        tick.getValue().run();
+
+        assertThat(futures).map(CompletableFuture::join).hasSize(8);
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactlyInAnyOrder(0, 1, 2, 3, 4, 5, 6, 7);
+        assertThat(loader.load(1)).isNotDone();
+        verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), eq(NANOSECONDS));
+    }
+}
@@ -0,0 +1,167 @@
+package com.dmdev.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:pool_test;DB_CLOSE_DELAY=-1";
+
+    private ConnectionPool pool;
+
+    @AfterEach
+    void closePool() {
+        pool.close();
+    }
+
+    @Test
+    void shouldFillPoolToMinSize() {
+        pool = createPool(PoolSettings.builder().minSize(2).maxSize(4).build());
+
+        assertThat(pool.getIdleCount()).isEqualTo(2);
+        assertThat(pool.getActiveCount()).isZero();
+    }
+
+    @Test
+    void closeShouldReturnConnectionToPool() throws SQLException {
+        pool = createPool(PoolSettings.builder().minSize(1).maxSize(1).build());
+
+        Connection first = pool.borrow();
+        Connection physical = first.unwrap(Connection.class);
+        first.close();
+        Connection second = pool.borrow();
+
+        assertThat(first.isClosed()).isTrue();
+        assertThat(second.isClosed()).isFalse();
+        assertThat(second.unwrap(Connection.class)).isSameAs(physical);
+        assertThat(physical.isClosed()).isFalse();
+        second.close();
+    }
+
+    @Test
+    void closedHandleShouldNotBeUsable() throws SQLException {
+        pool = createPool(PoolSettings.builder().minSize(0).maxSize(1).build());
+
+        Connection connection = pool.borrow();
+        connection.close();
+
+        assertThrows(SQLException.class, connection::createStatement);
+    }
+
+    @Test
+    void borrowShouldTimeOutWhenPoolIsExhausted() throws SQLException {
+        pool = createPool(PoolSettings.builder().minSize(0).maxSize(1).borrowTimeoutMillis(50).build());
+
+        try (var ignored = pool.borrow()) {
+            assertThrows(SQLTransientConnectionException.class, pool::borrow);
+        }
+        assertThat(pool.getActiveCount()).isZero();
+    }
+
+    @Test
+    void borrowShouldReplaceBrokenIdleConnection() throws SQLException {
+        pool = createPool(PoolSettings.builder().minSize(0).maxSize(1).build());
+
+        Connection first = pool.borrow();
+        Connection physical = first.unwrap(Connection.class);
+        first.close();
+        physical.close();
+
+        try (var second = pool.borrow()) {
+            assertThat(second.unwrap(Connection.class)).isNotSameAs(physical);
+            assertThat(second.isValid(1)).isTrue();
+        }
+    }
+
+    @Test
+    void returnedConnectionShouldBeResetToAutoCommit() throws SQLException {
+        pool = createPool(PoolSettings.builder().minSize(0).maxSize(1).build());
+
+        try (var connection = pool.borrow()) {
+            connection.setAutoCommit(false);
+        }
+
+        try (var connection = pool.borrow()) {
+            assertThat(connection.getAutoCommit()).isTrue();
+        }
+    }
+
+    @Test
+    void preparedStatementShouldBeReusedAcrossBorrows() throws SQLException {
+        pool = createPool(PoolSettings.builder().minSize(0).maxSize(1).statementCacheSize(2).build());
+
+        PreparedStatement first;
+        try (var connection = pool.borrow();
+             var preparedStatement = connection.prepareStatement("SELECT ?")) {
+            first = preparedStatement.unwrap(PreparedStatement.class);
+            preparedStatement.setInt(1, 1);
+            preparedStatement.executeQuery();
+        }
+
+        try (var connection = pool.borrow();
+             var preparedStatement = connection.prepareStatement("SELECT ?")) {
+            assertThat(preparedStatement.unwrap(PreparedStatement.class)).isSameAs(first);
+            assertThat(first.isClosed()).isFalse();
+            preparedStatement.setInt(1, 2);
+            ResultSet resultSet = preparedStatement.executeQuery();
+            resultSet.next();
+            assertThat(resultSet.getInt(1)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void closingCachedStatementShouldCloseItsResultSet() throws SQLException {
+        pool = createPool(PoolSettings.builder().minSize(0).maxSize(1).statementCacheSize(2).build());
+
+        try (var connection = pool.borrow()) {
+            var preparedStatement = connection.prepareStatement("SELECT 1");
+            ResultSet resultSet = preparedStatement.executeQuery();
+            preparedStatement.close();
+
+            assertThat(preparedStatement.isClosed()).isTrue();
+            assertThat(resultSet.isClosed()).isTrue();
+            assertThrows(SQLException.class, preparedStatement::executeQuery);
+        }
+    }
+
+    @Test
+    void statementCacheShouldEvictLeastRecentlyUsedStatement() throws SQLException {
+        pool = createPool(PoolSettings.builder().minSize(0).maxSize(1).statementCacheSize(1).build());
+
+        try (var connection = pool.borrow()) {
+            PreparedStatement evicted;
+            try (var preparedStatement = connection.prepareStatement("SELECT 1")) {
+                evicted = preparedStatement.unwrap(PreparedStatement.class);
+            }
+            connection.prepareStatement("SELECT 2").close();
+
+            assertThat(evicted.isClosed()).isTrue();
+        }
+    }
+
+    @Test
+    void statementCacheShouldBeDisabledForZeroSize() throws SQLException {
+        pool = createPool(PoolSettings.builder().minSize(0).maxSize(1).statementCacheSize(0).build());
+
+        try (var connection = pool.borrow()) {
+            PreparedStatement physical;
+            try (var preparedStatement = connection.prepareStatement("SELECT 1")) {
+                physical = preparedStatement.unwrap(PreparedStatement.class);
+            }
+
+            assertThat(physical.isClosed()).isTrue();
+        }
+    }
+
+    private static ConnectionPool createPool(PoolSettings settings) {
+        return new ConnectionPool(URL, "sa", "", settings);
+    }
+}
@@ -0,0 +1,179 @@
+package com.dmdev.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionRouterTest {
+    private static final String PRIMARY = "router_primary";
+    private static final String REPLICA_1 = "router_replica_1";
+    private static final String REPLICA_2 = "router_replica_2";
+    private static final Duration READ_YOUR_WRITES_WINDOW = Duration.ofSeconds(1);
+
+    @Mock
+    private Clock clock;
+    private final List<ConnectionPool> pools = new ArrayList<>();
+    private ConnectionRouter router;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        for (var node : List.of(PRIMARY, REPLICA_1, REPLICA_2)) {
+            try (var connection = createPool(node).borrow();
+                 var statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(32))");
+                statement.execute("DELETE FROM node");
+                statement.execute("INSERT INTO node VALUES ('" + node + "')");
+            }
+        }
+    }
+
+    @AfterEach
+    void closeRouter() {
+        if (router != null) {
+            router.close();
+        }
+        pools.forEach(ConnectionPool::close);
+    }
+
+    @Test
+    void writesShouldGoToPrimary() throws SQLException {
+        router = createRouter(ConnectionRouter.Balancing.ROUND_ROBIN);
+
+        assertThat(nodeOf(router.write())).isEqualTo(PRIMARY);
+    }
+
+    @Test
+    void readsShouldBeBalancedRoundRobinAcrossReplicas() throws SQLException {
+        router = createRouter(ConnectionRouter.Balancing.ROUND_ROBIN);
+
+        List<String> actualResult = List.of(nodeOf(router.read()), nodeOf(router.read()), nodeOf(router.read()));
+
+        assertThat(actualResult).containsExactly(REPLICA_1, REPLICA_2, REPLICA_1);
+    }
+
+    @Test
+    void readsShouldPreferLeastBusyReplica() throws SQLException {
+        router = createRouter(ConnectionRouter.Balancing.LEAST_BUSY);
+
+        try (var busy = router.read()) {
+            String busyNode = queryNode(busy);
+
+            assertThat(nodeOf(router.read())).isNotEqualTo(busyNode);
+            assertThat(nodeOf(router.read())).isNotEqualTo(busyNode);
+        }
+    }
+
+    @Test
+    void readsShouldStickToPrimaryWithinReadYourWritesWindow() throws SQLException {
+        router = createRouter(ConnectionRouter.Balancing.ROUND_ROBIN);
+        doReturn(Instant.ofEpochSecond(100)).when(clock).instant();
+        router.write().close();
+
+        doReturn(Instant.ofEpochSecond(100).plusMillis(999)).when(clock).instant();
+        assertThat(nodeOf(router.read())).isEqualTo(PRIMARY);
+
+        doReturn(Instant.ofEpochSecond(101)).when(clock).instant();
+        assertThat(nodeOf(router.read())).isEqualTo(REPLICA_1);
+    }
+
+    @Test
+    void readYourWritesWindowShouldStartWhenWriteConnectionIsReleased() throws SQLException {
+        router = createRouter(ConnectionRouter.Balancing.ROUND_ROBIN);
+        doReturn(Instant.ofEpochSecond(100)).when(clock).instant();
+        var connection = router.write();
+
+        doReturn(Instant.ofEpochSecond(105)).when(clock).instant();
+        connection.close();
+
+        doReturn(Instant.ofEpochSecond(105).plusMillis(999)).when(clock).instant();
+        assertThat(nodeOf(router.read())).isEqualTo(PRIMARY);
+
+        doReturn(Instant.ofEpochSecond(106)).when(clock).instant();
+        assertThat(nodeOf(router.read())).isEqualTo(REPLICA_1);
+    }
+
+    @Test
+    void readYourWritesWindowShouldBeScopedToWritingThread() throws Exception {
+        router = createRouter(ConnectionRouter.Balancing.ROUND_ROBIN);
+        doReturn(Instant.ofEpochSecond(100)).when(clock).instant();
+        router.write().close();
+
+        List<String> nodes = new ArrayList<>();
+        var reader = new Thread(() -> nodes.add(readNode()));
+        reader.start();
+        reader.join();
+
+        assertThat(nodes).containsExactly(REPLICA_1);
+    }
+
+    @Test
+    void readsShouldGoToPrimaryWithoutReplicas() throws SQLException {
+        router = new ConnectionRouter(createPool(PRIMARY), List.of(), ConnectionRouter.Balancing.ROUND_ROBIN,
+                READ_YOUR_WRITES_WINDOW, clock);
+
+        assertThat(nodeOf(router.read())).isEqualTo(PRIMARY);
+    }
+
+    @Test
+    void readsShouldFallBackToPrimaryWhenReplicaIsUnavailable() throws SQLException {
+        var replica = createPool(REPLICA_1);
+        replica.close();
+        router = new ConnectionRouter(createPool(PRIMARY), List.of(replica), ConnectionRouter.Balancing.ROUND_ROBIN,
+                READ_YOUR_WRITES_WINDOW, clock);
+
+        assertThat(nodeOf(router.read())).isEqualTo(PRIMARY);
+    }
+
+    private ConnectionRouter createRouter(ConnectionRouter.Balancing balancing) {
+        return new ConnectionRouter(
+                createPool(PRIMARY),
+                List.of(createPool(REPLICA_1), createPool(REPLICA_2)),
+                balancing,
+                READ_YOUR_WRITES_WINDOW,
+                clock);
+    }
+
+    private ConnectionPool createPool(String node) {
+        var pool = new ConnectionPool("jdbc:h2:mem:" + node + ";DB_CLOSE_DELAY=-1", "sa", "",
+                PoolSettings.builder().minSize(0).maxSize(2).borrowTimeoutMillis(1000).build());
+        pools.add(pool);
+        return pool;
+    }
+
+    private String readNode() {
+        try {
+            return nodeOf(router.read());
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String nodeOf(Connection connection) throws SQLException {
+        try (connection) {
+            return queryNode(connection);
+        }
+    }
+
+    private static String queryNode(Connection connection) throws SQLException {
+        try (var statement = connection.createStatement();
+             var resultSet = statement.executeQuery("SELECT name FROM node")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
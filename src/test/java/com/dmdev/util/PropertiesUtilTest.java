@@ -1,5 +1,6 @@
 package com.dmdev.util;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -24,4 +25,10 @@ class PropertiesUtilTest {
                 Arguments.of("db.password", "")
         );
     }
+
+    @Test
+    void getIntShouldFallBackToDefaultForMissingKey() {
+        assertEquals(5, PropertiesUtil.getInt("db.pool.max-size", 1));
+        assertEquals(42, PropertiesUtil.getInt("db.missing-key", 42));
+    }
 }
\ No newline at end of file
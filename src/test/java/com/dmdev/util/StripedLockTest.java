@@ -0,0 +1,75 @@
+package com.dmdev.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StripedLockTest {
+    @ParameterizedTest
+    @CsvSource({"1, 1", "2, 2", "3, 4", "64, 64", "100, 128"})
+    void shouldRoundStripeCountUpToPowerOfTwo(int stripeCount, int expected) {
+        assertThat(new StripedLock(stripeCount).getStripeCount()).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldRejectInvalidStripeCount() {
+        assertThrows(IllegalArgumentException.class, () -> new StripedLock(0));
+    }
+
+    @Test
+    void equalKeysShouldShareLock() {
+        StripedLock stripedLock = new StripedLock(16);
+
+        assertSame(stripedLock.get(List.of(1, "Jane")), stripedLock.get(List.of(1, "Jane")));
+        assertSame(stripedLock.get(null), stripedLock.get(null));
+    }
+
+    @Test
+    void getAllShouldReturnDistinctLocksInStableOrder() {
+        StripedLock stripedLock = new StripedLock(4);
+        List<Integer> keys = List.of(1, 2, 3, 4, 5, 6, 7, 8);
+
+        List<Lock> actualResult = stripedLock.getAll(keys);
+
+        assertThat(actualResult).doesNotHaveDuplicates().hasSize(4);
+        assertThat(stripedLock.getAll(keys.stream().sorted(Comparator.reverseOrder()).toList())).containsExactlyElementsOf(actualResult);
+    }
+
+    @Test
+    void withLockShouldExcludeOtherThreadsForSameKey() throws InterruptedException {
+        StripedLock stripedLock = new StripedLock(16);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> stripedLock.withLock("key", () -> {
+            locked.countDown();
+            awaitQuietly(release);
+            return null;
+        }));
+        holder.start();
+        locked.await();
+
+        assertFalse(stripedLock.get("key").tryLock());
+        release.countDown();
+        holder.join();
+        assertTrue(stripedLock.get("key").tryLock());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.dmdev.util;
+
+import com.dmdev.dao.SubscriptionDao;
+import com.dmdev.entity.Provider;
+import com.dmdev.entity.Status;
+import com.dmdev.entity.Subscription;
+import com.dmdev.integration.IntegrationTestBase;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionManagerIT extends IntegrationTestBase {
+    private final SubscriptionDao subscriptionDao = SubscriptionDao.getInstance();
+
+    @Test
+    void shouldCommitAllDaoCallsTogether() {
+        List<Subscription> actualResult = TransactionManager.inTransaction(() -> List.of(
+                subscriptionDao.insert(getSubscription(1)),
+                subscriptionDao.insert(getSubscription(2))));
+
+        assertThat(subscriptionDao.findAll()).containsExactlyInAnyOrderElementsOf(actualResult);
+        assertFalse(TransactionManager.isActive());
+    }
+
+    @Test
+    void shouldRollbackAllDaoCallsOnFailure() {
+        assertThrows(IllegalStateException.class, () -> TransactionManager.inTransaction(() -> {
+            subscriptionDao.insert(getSubscription(1));
+            subscriptionDao.insertAll(List.of(getSubscription(2), getSubscription(3)));
+            throw new IllegalStateException("boom");
+        }));
+
+        assertThat(subscriptionDao.findAll()).isEmpty();
+        assertFalse(TransactionManager.isActive());
+    }
+
+    @Test
+    void nestedTransactionShouldJoinOuterOne() {
+        assertThrows(IllegalStateException.class, () -> TransactionManager.inTransaction(() -> {
+            TransactionManager.inTransaction(() -> subscriptionDao.insert(getSubscription(1)));
+            throw new IllegalStateException("boom");
+        }));
+
+        assertThat(subscriptionDao.findAll()).isEmpty();
+    }
+
+    @Test
+    void connectionManagerShouldReturnBoundConnectionInsideTransaction() {
+        TransactionManager.inTransaction(connection -> {
+            Connection bound = ConnectionManager.get();
+            bound.close();
+
+            assertSame(bound, ConnectionManager.get());
+            assertTrue(TransactionManager.isActive());
+            assertFalse(connection.isClosed());
+            assertFalse(connection.getAutoCommit());
+            return null;
+        });
+    }
+
+    @Test
+    void daoReadsShouldSeeUncommittedWritesOfSameTransaction() {
+        TransactionManager.inTransaction(() -> {
+            Subscription subscription = subscriptionDao.insert(getSubscription(1));
+            subscriptionDao.transitionStatus(subscription.getId(), EnumSet.of(Status.ACTIVE), Status.CANCELED, null);
+
+            assertThat(subscriptionDao.findById(subscription.getId())).get()
+                    .extracting(Subscription::getStatus).isEqualTo(Status.CANCELED);
+        });
+    }
+
+    private Subscription getSubscription(Integer userId) {
+        return Subscription.builder()
+                .userId(userId)
+                .name("Jane")
+                .provider(Provider.APPLE)
+                .expirationDate(Instant.ofEpochSecond(169999999))
+                .status(Status.ACTIVE)
+                .build();
+    }
+}
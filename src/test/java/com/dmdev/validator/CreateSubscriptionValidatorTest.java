@@ -7,6 +7,9 @@ import org.junit.jupiter.api.Test;
 import java.time.Clock;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -89,4 +92,59 @@ class CreateSubscriptionValidatorTest {
         assertThat(actualResult.getErrors().get(0).getCode()).isEqualTo(103);
     }
 
-}
\ No newline at end of file
+    @Test
+    void validateAllShouldReportErrorsOnlyForInvalidIndexes() {
+        CreateSubscriptionDto validDto = getValidDto();
+        CreateSubscriptionDto invalidDto = CreateSubscriptionDto.builder()
+                .name(" ")
+                .provider("amazon")
+                .expirationDate(Instant.parse("2022-10-10T10:15:30.345Z"))
+                .build();
+
+        BatchValidationResult actualResult = createSubscriptionValidator.validateAll(
+                List.of(validDto, invalidDto, validDto, validDto, invalidDto, validDto));
+
+        assertThat(actualResult.size()).isEqualTo(6);
+        assertThat(actualResult.getInvalidIndexes()).containsExactly(1, 4);
+        assertThat(actualResult.getErrors(1)).extracting(Error::getCode).containsExactly(100, 101, 102, 103);
+        assertThat(actualResult.getErrors(0)).isEmpty();
+        assertThat(actualResult.getErrors(0)).isSameAs(actualResult.getErrors(2));
+        assertThat(actualResult.getErrors(1)).isSameAs(actualResult.getErrors(4));
+    }
+
+    @Test
+    void validateAllShouldMatchValidateForEveryDto() {
+        List<CreateSubscriptionDto> dtos = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            dtos.add(CreateSubscriptionDto.builder()
+                    .userId(i % 3 == 0 ? null : i)
+                    .name(i % 5 == 0 ? "" : "Jane")
+                    .provider(i % 7 == 0 ? "amazon" : Provider.GOOGLE.name().toLowerCase())
+                    .expirationDate(i % 11 == 0 ? Instant.parse("2022-10-10T10:15:30.345Z") : Instant.parse("2100-10-10T10:15:30.345Z"))
+                    .build());
+        }
+
+        BatchValidationResult actualResult = createSubscriptionValidator.validateAll(new LinkedList<>(dtos));
+
+        for (int i = 0; i < dtos.size(); i++) {
+            assertThat(actualResult.getErrors(i)).isEqualTo(createSubscriptionValidator.validate(dtos.get(i)).getErrors());
+        }
+    }
+
+    @Test
+    void validateAllShouldAcceptEmptyBatch() {
+        BatchValidationResult actualResult = createSubscriptionValidator.validateAll(List.of());
+
+        assertFalse(actualResult.hasErrors());
+        assertThat(actualResult.size()).isZero();
+    }
+
+    private CreateSubscriptionDto getValidDto() {
+        return CreateSubscriptionDto.builder()
+                .userId(1)
+                .name("Jane")
+                .provider(Provider.APPLE.name())
+                .expirationDate(Instant.parse("2100-10-10T10:15:30.345Z"))
+                .build();
+    }
+}